@@ -3,10 +3,12 @@ package com.kirill.meetyou;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class MeetYou2Application {
 
     public static void main(String[] args) {
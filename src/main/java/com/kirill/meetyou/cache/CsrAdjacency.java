@@ -0,0 +1,96 @@
+package com.kirill.meetyou.cache;
+
+import java.util.Arrays;
+
+// Неизменяемый список смежности в формате CSR: отсортированные id вершин,
+// смещения и общий массив соседей, отсортированных внутри каждой вершины
+public final class CsrAdjacency {
+    static final long[] NO_NEIGHBOURS = new long[0];
+    static final CsrAdjacency EMPTY = new CsrAdjacency(NO_NEIGHBOURS, new int[1], NO_NEIGHBOURS);
+
+    private final long[] nodes;
+    private final int[] offsets;
+    private final long[] targets;
+
+    CsrAdjacency(long[] nodes, int[] offsets, long[] targets) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    // Строит CSR из первых count рёбер sources[i] -> destinations[i]
+    public static CsrAdjacency build(long[] sources, long[] destinations, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        long[] sorted = Arrays.copyOf(sources, count);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        long[] nodes = Arrays.copyOf(sorted, unique);
+
+        int[] offsets = new int[unique + 1];
+        int[] nodeIndexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodeIndexes[i] = Arrays.binarySearch(nodes, sources[i]);
+            offsets[nodeIndexes[i] + 1]++;
+        }
+        for (int i = 0; i < unique; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] cursor = Arrays.copyOf(offsets, unique);
+        long[] targets = new long[count];
+        for (int i = 0; i < count; i++) {
+            targets[cursor[nodeIndexes[i]]++] = destinations[i];
+        }
+        for (int i = 0; i < unique; i++) {
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+        return new CsrAdjacency(nodes, offsets, targets);
+    }
+
+    public long[] neighbours(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        if (index < 0) {
+            return NO_NEIGHBOURS;
+        }
+        return Arrays.copyOfRange(targets, offsets[index], offsets[index + 1]);
+    }
+
+    public boolean contains(long node, long target) {
+        int index = Arrays.binarySearch(nodes, node);
+        return index >= 0
+                && Arrays.binarySearch(targets, offsets[index], offsets[index + 1], target) >= 0;
+    }
+
+    public int degree(long node) {
+        int index = Arrays.binarySearch(nodes, node);
+        return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    long[] nodes() {
+        return nodes;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    long[] targets() {
+        return targets;
+    }
+}
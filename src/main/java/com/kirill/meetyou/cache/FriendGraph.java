@@ -0,0 +1,270 @@
+package com.kirill.meetyou.cache;
+
+import static com.kirill.meetyou.utils.SortedLongArrays.with;
+import static com.kirill.meetyou.utils.SortedLongArrays.without;
+
+import com.kirill.meetyou.utils.LongArrayList;
+import com.kirill.meetyou.utils.SortedLongArrays;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+// Граф дружбы в памяти: направленные рёбра user_friends (user_id -> friend_id)
+// хранятся в CSR для обоих направлений, последние изменения — в дельта-слое
+@Slf4j
+@Component
+public class FriendGraph {
+    private static final String LOAD_EDGES_SQL = "SELECT user_id, friend_id FROM user_friends";
+    private static final int COMPACTION_THRESHOLD = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Adjacency outgoing = new Adjacency(CsrAdjacency.EMPTY);
+    private volatile Adjacency incoming = new Adjacency(CsrAdjacency.EMPTY);
+    private int pendingChanges;
+
+    public FriendGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Полная загрузка из user_friends; при старте вызывается FriendGraphCheckpoint,
+    // если снимка на диске нет или он устарел
+    public void load() {
+        long startedAt = System.currentTimeMillis();
+        LongArrayList sources = new LongArrayList(1024);
+        LongArrayList targets = new LongArrayList(1024);
+        jdbcTemplate.query(LOAD_EDGES_SQL, (RowCallbackHandler) (ResultSet rs) -> {
+            sources.add(rs.getLong(1));
+            targets.add(rs.getLong(2));
+        });
+        rebuild(sources.toArray(), targets.toArray(), sources.size());
+        log.info("Граф дружбы загружен: {} связей за {} мс",
+                sources.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    public synchronized void rebuild(long[] userIds, long[] friendIds, int count) {
+        outgoing = new Adjacency(CsrAdjacency.build(userIds, friendIds, count));
+        incoming = new Adjacency(CsrAdjacency.build(friendIds, userIds, count));
+        pendingChanges = 0;
+    }
+
+    public synchronized void restore(FriendGraphSnapshot snapshot) {
+        outgoing = new Adjacency(snapshot.getOutgoing());
+        incoming = new Adjacency(snapshot.getIncoming());
+        pendingChanges = 0;
+    }
+
+    // Сливает дельта-слой с базой, чтобы снимок состоял из двух готовых CSR
+    public synchronized FriendGraphSnapshot snapshot(long watermark, long createdAtMillis) {
+        outgoing = outgoing.compact();
+        incoming = incoming.compact();
+        pendingChanges = 0;
+        return new FriendGraphSnapshot(watermark, createdAtMillis, outgoing.base, incoming.base);
+    }
+
+    // Кого пользователь добавил в друзья (User.friends), отсортировано по id
+    public long[] getFriendIds(long userId) {
+        return outgoing.neighbours(userId);
+    }
+
+    // Кто добавил пользователя в друзья (User.friendOf), отсортировано по id
+    public long[] getFriendOfIds(long userId) {
+        return incoming.neighbours(userId);
+    }
+
+    public boolean hasFriend(long userId, long friendId) {
+        return outgoing.contains(userId, friendId);
+    }
+
+    // Все связи пользователя независимо от направления: friends и friendOf вместе
+    public long[] getConnectionIds(long userId) {
+        return SortedLongArrays.union(outgoing.neighbours(userId), incoming.neighbours(userId));
+    }
+
+    public int countFriends(long userId) {
+        return outgoing.degree(userId);
+    }
+
+    public int countFriendOf(long userId) {
+        return incoming.degree(userId);
+    }
+
+    public synchronized boolean addFriendship(long userId, long friendId) {
+        if (!outgoing.add(userId, friendId)) {
+            return false;
+        }
+        incoming.add(friendId, userId);
+        onChange();
+        return true;
+    }
+
+    public synchronized boolean removeFriendship(long userId, long friendId) {
+        if (!outgoing.remove(userId, friendId)) {
+            return false;
+        }
+        incoming.remove(friendId, userId);
+        onChange();
+        return true;
+    }
+
+    // Удаление пользователя: все его рёбра в обе стороны; возвращает число удалённых рёбер
+    public synchronized int removeUser(long userId) {
+        int removed = 0;
+        for (long friendId : outgoing.neighbours(userId)) {
+            outgoing.remove(userId, friendId);
+            incoming.remove(friendId, userId);
+            onChange();
+            removed++;
+        }
+        for (long followerId : incoming.neighbours(userId)) {
+            outgoing.remove(followerId, userId);
+            incoming.remove(userId, followerId);
+            onChange();
+            removed++;
+        }
+        return removed;
+    }
+
+    private void onChange() {
+        if (++pendingChanges >= COMPACTION_THRESHOLD) {
+            outgoing = outgoing.compact();
+            incoming = incoming.compact();
+            pendingChanges = 0;
+            log.debug("Дельта-слой графа дружбы слит с базовым CSR");
+        }
+    }
+
+    // Базовый CSR плюс дельта: добавленные и удалённые соседи по вершинам.
+    // Читатели работают без блокировок, изменения идут под монитором FriendGraph
+    private static final class Adjacency {
+        private final CsrAdjacency base;
+        private final Map<Long, Delta> deltas = new ConcurrentHashMap<>();
+
+        Adjacency(CsrAdjacency base) {
+            this.base = base;
+        }
+
+        long[] neighbours(long node) {
+            Delta delta = deltas.get(node);
+            long[] baseNeighbours = base.neighbours(node);
+            return delta == null ? baseNeighbours : delta.applyTo(baseNeighbours);
+        }
+
+        boolean contains(long node, long target) {
+            Delta delta = deltas.get(node);
+            if (delta != null) {
+                if (Arrays.binarySearch(delta.added, target) >= 0) {
+                    return true;
+                }
+                if (Arrays.binarySearch(delta.removed, target) >= 0) {
+                    return false;
+                }
+            }
+            return base.contains(node, target);
+        }
+
+        int degree(long node) {
+            Delta delta = deltas.get(node);
+            int degree = base.degree(node);
+            return delta == null ? degree : degree + delta.added.length - delta.removed.length;
+        }
+
+        boolean add(long node, long target) {
+            if (contains(node, target)) {
+                return false;
+            }
+            Delta delta = deltas.getOrDefault(node, Delta.EMPTY);
+            if (Arrays.binarySearch(delta.removed, target) >= 0) {
+                store(node, new Delta(delta.added, without(delta.removed, target)));
+            } else {
+                store(node, new Delta(with(delta.added, target), delta.removed));
+            }
+            return true;
+        }
+
+        boolean remove(long node, long target) {
+            if (!contains(node, target)) {
+                return false;
+            }
+            Delta delta = deltas.getOrDefault(node, Delta.EMPTY);
+            if (Arrays.binarySearch(delta.added, target) >= 0) {
+                store(node, new Delta(without(delta.added, target), delta.removed));
+            } else {
+                store(node, new Delta(delta.added, with(delta.removed, target)));
+            }
+            return true;
+        }
+
+        Adjacency compact() {
+            if (deltas.isEmpty()) {
+                return this;
+            }
+            LongArrayList sources = new LongArrayList(base.edgeCount() + 16);
+            LongArrayList targets = new LongArrayList(base.edgeCount() + 16);
+            long[] nodes = base.nodes();
+            for (long node : nodes) {
+                appendEdges(node, sources, targets);
+            }
+            for (Long node : deltas.keySet()) {
+                if (Arrays.binarySearch(nodes, node) < 0) {
+                    appendEdges(node, sources, targets);
+                }
+            }
+            return new Adjacency(CsrAdjacency.build(sources.toArray(), targets.toArray(),
+                    sources.size()));
+        }
+
+        private void appendEdges(long node, LongArrayList sources, LongArrayList targets) {
+            for (long target : neighbours(node)) {
+                sources.add(node);
+                targets.add(target);
+            }
+        }
+
+        private void store(long node, Delta delta) {
+            if (delta.added.length == 0 && delta.removed.length == 0) {
+                deltas.remove(node);
+            } else {
+                deltas.put(node, delta);
+            }
+        }
+    }
+
+    // Неизменяемая дельта одной вершины; added не пересекается с базой, removed — её подмножество
+    private static final class Delta {
+        static final Delta EMPTY = new Delta(CsrAdjacency.NO_NEIGHBOURS,
+                CsrAdjacency.NO_NEIGHBOURS);
+
+        final long[] added;
+        final long[] removed;
+
+        Delta(long[] added, long[] removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        long[] applyTo(long[] base) {
+            long[] result = new long[base.length - removed.length + added.length];
+            int size = 0;
+            int addedIndex = 0;
+            for (long value : base) {
+                if (Arrays.binarySearch(removed, value) >= 0) {
+                    continue;
+                }
+                while (addedIndex < added.length && added[addedIndex] < value) {
+                    result[size++] = added[addedIndex++];
+                }
+                result[size++] = value;
+            }
+            while (addedIndex < added.length) {
+                result[size++] = added[addedIndex++];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.kirill.meetyou.cache;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Быстрый старт графа дружбы: снимок на диске плюс хвост журнала user_friends_log из БД.
+// Журнал пишут запросы FriendRepository в той же транзакции, что и саму связь
+@Slf4j
+@Component
+public class FriendGraphCheckpoint {
+    // Отступ в минуту покрывает транзакции, получившие seq, но ещё не зафиксированные
+    private static final String WATERMARK_SQL = "SELECT COALESCE(MAX(seq), 0),"
+            + " CAST(EXTRACT(EPOCH FROM now()) * 1000 AS BIGINT)"
+            + " FROM user_friends_log WHERE created_at < now() - INTERVAL '1 minute'";
+    private static final String DB_NOW_SQL = "SELECT CAST(EXTRACT(EPOCH FROM now()) * 1000 AS BIGINT)";
+    private static final String REPLAY_SQL = "SELECT user_id, friend_id, added FROM user_friends_log"
+            + " WHERE seq > ? ORDER BY seq";
+    private static final String PRUNE_SQL = "DELETE FROM user_friends_log"
+            + " WHERE created_at < now() - CAST(? AS INTEGER) * INTERVAL '1 day'";
+    private static final long SAFETY_MARGIN_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final FriendGraph friendGraph;
+    private final JdbcTemplate jdbcTemplate;
+    private final Path snapshotPath;
+    private final int retentionDays;
+
+    public FriendGraphCheckpoint(
+            FriendGraph friendGraph,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.friends.graph.snapshot.path:./data/friend-graph.snapshot}")
+            Path snapshotPath,
+            @Value("${app.friends.graph.changelog.retention-days:7}") int retentionDays) {
+        this.friendGraph = friendGraph;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotPath = snapshotPath;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (restoreFromSnapshot()) {
+            return;
+        }
+        // Отметку журнала берём до чтения связей: всё, что новее, повторится при следующем старте
+        Watermark watermark = readWatermark();
+        friendGraph.load();
+        writeSnapshot(watermark);
+    }
+
+    @Scheduled(initialDelayString = "${app.friends.graph.snapshot.interval-ms:600000}",
+            fixedDelayString = "${app.friends.graph.snapshot.interval-ms:600000}")
+    public void checkpoint() {
+        writeSnapshot(readWatermark());
+        int pruned = jdbcTemplate.update(PRUNE_SQL, retentionDays);
+        if (pruned > 0) {
+            log.debug("Из журнала связей удалено {} записей старше {} дн.", pruned, retentionDays);
+        }
+    }
+
+    private boolean restoreFromSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            log.info("Снимок графа дружбы {} не найден, загрузка из БД", snapshotPath);
+            return false;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        FriendGraphSnapshot snapshot;
+        try {
+            snapshot = FriendGraphSnapshot.readFrom(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать снимок графа дружбы {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+
+        // Журнал старше retentionDays удаляется, поэтому старый снимок уже нельзя догнать
+        long age = dbNowMillis() - snapshot.getCreatedAtMillis();
+        if (age > TimeUnit.DAYS.toMillis(retentionDays) - SAFETY_MARGIN_MILLIS) {
+            log.warn("Снимок графа дружбы устарел ({} ч), загрузка из БД",
+                    TimeUnit.MILLISECONDS.toHours(age));
+            return false;
+        }
+
+        friendGraph.restore(snapshot);
+        int replayed = replayChanges(snapshot.getWatermark());
+        log.info("Граф дружбы восстановлен из снимка: {} связей, {} изменений журнала за {} мс",
+                snapshot.getOutgoing().edgeCount(), replayed,
+                System.currentTimeMillis() - startedAt);
+        return true;
+    }
+
+    // Повтор идемпотентен: добавление существующей и удаление отсутствующей связи ничего не меняют
+    private int replayChanges(long watermark) {
+        AtomicInteger replayed = new AtomicInteger();
+        jdbcTemplate.query(REPLAY_SQL, (RowCallbackHandler) (ResultSet rs) -> {
+            if (rs.getBoolean(3)) {
+                friendGraph.addFriendship(rs.getLong(1), rs.getLong(2));
+            } else {
+                friendGraph.removeFriendship(rs.getLong(1), rs.getLong(2));
+            }
+            replayed.incrementAndGet();
+        }, watermark);
+        return replayed.get();
+    }
+
+    private void writeSnapshot(Watermark watermark) {
+        long startedAt = System.currentTimeMillis();
+        FriendGraphSnapshot snapshot = friendGraph.snapshot(watermark.getSeq(),
+                watermark.getCreatedAtMillis());
+        try {
+            snapshot.writeTo(snapshotPath);
+            log.info("Снимок графа дружбы сохранён: {} связей, журнал до seq {}, {} мс",
+                    snapshot.getOutgoing().edgeCount(), watermark.getSeq(),
+                    System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить снимок графа дружбы {}: {}",
+                    snapshotPath, e.getMessage(), e);
+        }
+    }
+
+    private Watermark readWatermark() {
+        return jdbcTemplate.queryForObject(WATERMARK_SQL,
+                (rs, rowNum) -> new Watermark(rs.getLong(1), rs.getLong(2)));
+    }
+
+    private long dbNowMillis() {
+        Long now = jdbcTemplate.queryForObject(DB_NOW_SQL, Long.class);
+        return now == null ? System.currentTimeMillis() : now;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Watermark {
+        private final long seq;
+        private final long createdAtMillis;
+    }
+}
@@ -0,0 +1,171 @@
+package com.kirill.meetyou.cache;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Снимок графа дружбы в бинарном файле: заголовок и два CSR (исходящие и входящие рёбра).
+// Файл пишется и читается через отображение в память, массивы копируются блоками до 1 ГБ
+@Getter
+@AllArgsConstructor
+public final class FriendGraphSnapshot {
+    private static final int MAGIC = 0x4D594647;  // "MYFG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int SECTION_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int CHUNK_BYTES = 1 << 30;
+
+    private final long watermark;        // seq журнала user_friends_log, учтённый в снимке
+    private final long createdAtMillis;  // время снимка по часам БД
+    private final CsrAdjacency outgoing;
+    private final CsrAdjacency incoming;
+
+    // Пишет во временный файл рядом и атомарно подменяет им старый снимок
+    public void writeTo(Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            Cursor cursor = new Cursor(channel, READ_WRITE);
+            ByteBuffer header = cursor.next(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(watermark).putLong(createdAtMillis);
+            cursor.force(header);
+            writeSection(cursor, outgoing);
+            writeSection(cursor, incoming);
+        }
+        Files.move(temp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    public static FriendGraphSnapshot readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Файл снимка графа обрезан: " + file);
+            }
+            Cursor cursor = new Cursor(channel, READ_ONLY);
+            ByteBuffer header = cursor.next(HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка графа: " + file);
+            }
+            long watermark = header.getLong();
+            long createdAtMillis = header.getLong();
+            CsrAdjacency outgoing = readSection(cursor, file);
+            CsrAdjacency incoming = readSection(cursor, file);
+            if (cursor.position != channel.size()) {
+                throw new IOException("Лишние данные в конце снимка графа: " + file);
+            }
+            return new FriendGraphSnapshot(watermark, createdAtMillis, outgoing, incoming);
+        }
+    }
+
+    private static void writeSection(Cursor cursor, CsrAdjacency adjacency) throws IOException {
+        ByteBuffer header = cursor.next(SECTION_HEADER_BYTES);
+        header.putInt(adjacency.nodeCount()).putInt(adjacency.edgeCount());
+        cursor.force(header);
+        cursor.writeLongs(adjacency.nodes());
+        cursor.writeInts(adjacency.offsets());
+        cursor.writeLongs(adjacency.targets());
+    }
+
+    private static CsrAdjacency readSection(Cursor cursor, Path file) throws IOException {
+        if (cursor.remaining() < SECTION_HEADER_BYTES) {
+            throw new IOException("Файл снимка графа обрезан: " + file);
+        }
+        ByteBuffer header = cursor.next(SECTION_HEADER_BYTES);
+        int nodeCount = header.getInt();
+        int edgeCount = header.getInt();
+        long expected = (long) nodeCount * Long.BYTES + (nodeCount + 1L) * Integer.BYTES
+                + (long) edgeCount * Long.BYTES;
+        if (nodeCount < 0 || edgeCount < 0 || cursor.remaining() < expected) {
+            throw new IOException("Файл снимка графа обрезан: " + file);
+        }
+
+        long[] nodes = cursor.readLongs(nodeCount);
+        int[] offsets = cursor.readInts(nodeCount + 1);
+        long[] targets = cursor.readLongs(edgeCount);
+        if (offsets[0] != 0 || offsets[nodeCount] != edgeCount) {
+            throw new IOException("Некорректные смещения в снимке графа: " + file);
+        }
+        return new CsrAdjacency(nodes, offsets, targets);
+    }
+
+    // Последовательно отображает участки файла; длинные массивы — несколькими окнами
+    private static final class Cursor {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private long position;
+
+        Cursor(FileChannel channel, FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.mode = mode;
+        }
+
+        long remaining() throws IOException {
+            return channel.size() - position;
+        }
+
+        ByteBuffer next(long bytes) throws IOException {
+            MappedByteBuffer buffer = channel.map(mode, position, bytes);
+            position += bytes;
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void force(ByteBuffer buffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+
+        void writeLongs(long[] values) throws IOException {
+            int chunk = CHUNK_BYTES / Long.BYTES;
+            for (int from = 0; from < values.length; from += chunk) {
+                int length = Math.min(chunk, values.length - from);
+                ByteBuffer buffer = next((long) length * Long.BYTES);
+                buffer.asLongBuffer().put(values, from, length);
+                force(buffer);
+            }
+        }
+
+        void writeInts(int[] values) throws IOException {
+            int chunk = CHUNK_BYTES / Integer.BYTES;
+            for (int from = 0; from < values.length; from += chunk) {
+                int length = Math.min(chunk, values.length - from);
+                ByteBuffer buffer = next((long) length * Integer.BYTES);
+                buffer.asIntBuffer().put(values, from, length);
+                force(buffer);
+            }
+        }
+
+        long[] readLongs(int count) throws IOException {
+            long[] values = new long[count];
+            int chunk = CHUNK_BYTES / Long.BYTES;
+            for (int from = 0; from < count; from += chunk) {
+                int length = Math.min(chunk, count - from);
+                next((long) length * Long.BYTES).asLongBuffer().get(values, from, length);
+            }
+            return values;
+        }
+
+        int[] readInts(int count) throws IOException {
+            int[] values = new int[count];
+            int chunk = CHUNK_BYTES / Integer.BYTES;
+            for (int from = 0; from < count; from += chunk) {
+                int length = Math.min(chunk, count - from);
+                next((long) length * Integer.BYTES).asIntBuffer().get(values, from, length);
+            }
+            return values;
+        }
+    }
+}
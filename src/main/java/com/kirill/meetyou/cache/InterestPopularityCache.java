@@ -0,0 +1,65 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.dto.InterestPopularityDto;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class InterestPopularityCache {
+    private static final Comparator<InterestPopularityDto> BY_COUNT =
+            Comparator.comparingLong(InterestPopularityDto::getUsersCount)
+                    .thenComparing(InterestPopularityDto::getInterestType,
+                            Comparator.reverseOrder());
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(String interestType) {
+        counters.computeIfAbsent(interestType, k -> new LongAdder()).increment();
+    }
+
+    public void decrement(String interestType) {
+        counters.computeIfAbsent(interestType, k -> new LongAdder()).decrement();
+    }
+
+    public long getCount(String interestType) {
+        LongAdder adder = counters.get(interestType);
+        return adder != null ? Math.max(adder.sum(), 0) : 0;
+    }
+
+    // Топ-N через min-кучу размера N, без сортировки всех интересов
+    public List<InterestPopularityDto> getTop(int limit) {
+        PriorityQueue<InterestPopularityDto> heap = new PriorityQueue<>(limit + 1, BY_COUNT);
+        counters.forEach((type, adder) -> {
+            long count = adder.sum();
+            if (count <= 0) {
+                return;
+            }
+            heap.offer(new InterestPopularityDto(type, count));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+
+        List<InterestPopularityDto> top = new ArrayList<>(heap);
+        top.sort(BY_COUNT.reversed());
+        return top;
+    }
+
+    // Сверка с БД: значения счётчиков заменяются фактическими, лишние ключи удаляются
+    public void reconcile(Map<String, Long> actualCounts) {
+        actualCounts.forEach((type, count) -> {
+            LongAdder adder = counters.computeIfAbsent(type, k -> new LongAdder());
+            long drift = count - adder.sum();
+            if (drift != 0) {
+                adder.add(drift);
+            }
+        });
+        counters.keySet().removeIf(type -> !actualCounts.containsKey(type));
+    }
+}
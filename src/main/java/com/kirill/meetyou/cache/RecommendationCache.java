@@ -0,0 +1,78 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.dto.FriendRecommendationDto;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RecommendationCache {
+    private static final int MAX_SIZE = 10_000;
+    private static final long TTL = 10L * 60 * 1000;
+
+    private final Map<Key, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    public List<FriendRecommendationDto> get(Long userId, boolean withInterests) {
+        Key key = new Key(userId, withInterests);
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry == null || entry.isExpired()) {
+                if (entry != null) {
+                    cache.remove(key);
+                }
+                return null;
+            }
+            return entry.recommendations;
+        }
+    }
+
+    public void put(Long userId, boolean withInterests,
+                    List<FriendRecommendationDto> recommendations) {
+        synchronized (cache) {
+            cache.put(new Key(userId, withInterests), new CacheEntry(recommendations));
+        }
+    }
+
+    public void invalidate(long userId) {
+        synchronized (cache) {
+            cache.remove(new Key(userId, false));
+            cache.remove(new Key(userId, true));
+        }
+    }
+
+    public void invalidateAll(long[] userIds) {
+        synchronized (cache) {
+            for (long userId : userIds) {
+                cache.remove(new Key(userId, false));
+                cache.remove(new Key(userId, true));
+            }
+        }
+    }
+
+    @Value
+    private static class Key {
+        long userId;
+        boolean withInterests;
+    }
+
+    private static class CacheEntry {
+        final List<FriendRecommendationDto> recommendations;
+        final long timestamp;
+
+        CacheEntry(List<FriendRecommendationDto> recommendations) {
+            this.recommendations = recommendations;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - timestamp > TTL;
+        }
+    }
+}
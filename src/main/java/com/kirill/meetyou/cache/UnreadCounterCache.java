@@ -0,0 +1,99 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.utils.LongLongHashMap;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import org.springframework.stereotype.Component;
+
+// Счётчики непрочитанных сообщений по пользователям: полосы LongLongHashMap под своими мониторами.
+// Счётчик загружается из БД при первом запросе, дальше меняется только в памяти.
+// Версия полосы растёт при каждом изменении: загрузка и сверка, пересёкшиеся с изменением,
+// свой результат не записывают, чтобы не затереть его
+@Component
+public class UnreadCounterCache {
+    private static final int STRIPE_BITS = 8;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final long MISSING = -1;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public UnreadCounterCache() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public long getOrLoad(long userId, LongUnaryOperator loader) {
+        Stripe stripe = stripeFor(userId);
+        long version;
+        synchronized (stripe) {
+            long cached = stripe.counters.get(userId, MISSING);
+            if (cached != MISSING) {
+                return cached;
+            }
+            version = stripe.version;
+        }
+
+        long loaded = loader.applyAsLong(userId);
+        synchronized (stripe) {
+            if (stripe.version == version) {
+                stripe.counters.putIfAbsent(userId, loaded);
+                return stripe.counters.get(userId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Меняет только загруженный счётчик; незагруженный посчитается из БД при первом запросе
+    public void add(long userId, long delta) {
+        Stripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            stripe.version++;
+            long current = stripe.counters.get(userId, MISSING);
+            if (current != MISSING) {
+                stripe.counters.put(userId, Math.max(0, current + delta));
+            }
+        }
+    }
+
+    // Пересчитывает загруженные счётчики полосами; loader получает id и возвращает их значения
+    public int reconcile(Function<long[], LongLongHashMap> loader) {
+        int updated = 0;
+        for (Stripe stripe : stripes) {
+            long[] userIds;
+            long version;
+            synchronized (stripe) {
+                if (stripe.counters.size() == 0) {
+                    continue;
+                }
+                userIds = stripe.counters.keys();
+                version = stripe.version;
+            }
+
+            LongLongHashMap actual = loader.apply(userIds);
+            synchronized (stripe) {
+                if (stripe.version != version) {
+                    continue;
+                }
+                for (long userId : userIds) {
+                    long value = actual.get(userId, 0);
+                    if (stripe.counters.get(userId, MISSING) != value) {
+                        stripe.counters.put(userId, value);
+                        updated++;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private Stripe stripeFor(long userId) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    private static final class Stripe {
+        private final LongLongHashMap counters = new LongLongHashMap();
+        private long version;
+    }
+}
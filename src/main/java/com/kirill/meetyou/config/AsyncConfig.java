@@ -1,6 +1,7 @@
 package com.kirill.meetyou.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -19,8 +20,31 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
-
-
 
+    // Отправка событий SSE; при переполнении очереди поток подписчика закрывается
+    @Bean(name = "messagePushExecutor")
+    public Executor messagePushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(10_000);
+        executor.setThreadNamePrefix("MessagePush-");
+        executor.initialize();
+        return executor;
+    }
 
+    // Запись файлов пакетной загрузки фотографий. Заполненная очередь или остановленный пул
+    // отклоняют задачу (TaskRejectedException), и PhotoService считает этот файл несохранённым:
+    // CallerRunsPolicy после остановки пула молча выбрасывала задачу, и запрос ждал её вечно
+    @Bean(name = "photoUploadExecutor")
+    public Executor photoUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("PhotoUpload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
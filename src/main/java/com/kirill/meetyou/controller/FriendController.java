@@ -1,18 +1,31 @@
 package com.kirill.meetyou.controller;
 
+import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.FriendPageDto;
+import com.kirill.meetyou.dto.FriendPairDto;
+import com.kirill.meetyou.dto.FriendPathDto;
+import com.kirill.meetyou.dto.FriendRecommendationDto;
+import com.kirill.meetyou.dto.MutualFriendsDto;
+import com.kirill.meetyou.enums.PathSearchStatus;
 import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.service.FriendPathService;
+import com.kirill.meetyou.service.FriendRecommendationService;
 import com.kirill.meetyou.service.FriendService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -22,6 +35,8 @@ import org.springframework.web.bind.annotation.RestController;
         description = "API для управления дружескими связями пользователей")
 public class FriendController {
     private final FriendService friendService;
+    private final FriendRecommendationService friendRecommendationService;
+    private final FriendPathService friendPathService;
 
     @PostMapping("/{userId}/add/{friendId}")
     @Operation(summary = "Добавить друга",
@@ -34,6 +49,21 @@ public class FriendController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/{userId}/add-batch")
+    @Operation(summary = "Добавить друзей пакетом",
+            description = "Добавляет указанному пользователю сразу несколько друзей;"
+                    + " уже существующие связи и неизвестные пользователи попадают в ошибки")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Пакет обработан"),
+        @ApiResponse(responseCode = "400", description = "Пустой или слишком большой список"),
+        @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<BulkResponse> addFriends(
+            @PathVariable Long userId,
+            @RequestBody List<Long> friendIds) {
+        return ResponseEntity.ok(friendService.addFriends(userId, friendIds));
+    }
+
     @DeleteMapping("/{userId}/remove/{friendId}")
     @Operation(summary = "Удалить друга",
             description = "Удаляет дружескую связь между двумя пользователями")
@@ -53,13 +83,105 @@ public class FriendController {
         return ResponseEntity.ok(friendService.getAllFriends(userId));
     }
 
+    @GetMapping("/{userId}/list")
+    @Operation(summary = "Получить друзей постранично",
+            description = "Возвращает страницу друзей (id, имя, главное фото) в порядке"
+                    + " возрастания id; для следующей страницы передайте nextCursor в after")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Страница друзей успешно получена"),
+        @ApiResponse(responseCode = "400", description = "Некорректный размер страницы")
+    })
+    public ResponseEntity<FriendPageDto> getFriendsPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(friendService.getFriendsPage(userId, after, limit));
+    }
+
+    @GetMapping("/{userId}/count")
+    @Operation(summary = "Количество друзей",
+            description = "Возвращает число друзей пользователя из денормализованного счётчика")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Количество друзей успешно получено"),
+        @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<Integer> countFriends(@PathVariable Long userId) {
+        return ResponseEntity.ok(friendService.countFriends(userId));
+    }
+
     @GetMapping("/{userId}/check/{friendId}")
     @Operation(summary = "Проверить дружбу",
-            description = "Проверяет наличие дружеской связи между двумя пользователями")
+            description = "Проверяет, входит ли friendId в список друзей userId"
+                    + " (то есть добавил ли friendId пользователя userId)")
     @ApiResponse(responseCode = "200", description = "Статус дружбы успешно получен")
     public ResponseEntity<Boolean> checkFriendship(
             @PathVariable Long userId,
             @PathVariable Long friendId) {
         return ResponseEntity.ok(friendService.checkFriendship(userId, friendId));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{userId}/mutual/{otherId}")
+    @Operation(summary = "Общие друзья",
+            description = "Возвращает количество общих друзей двух пользователей и,"
+                    + " при limit > 0, страницу их идентификаторов")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Общие друзья успешно получены"),
+        @ApiResponse(responseCode = "400", description = "Некорректные параметры страницы")
+    })
+    public ResponseEntity<MutualFriendsDto> getMutualFriends(
+            @PathVariable Long userId,
+            @PathVariable Long otherId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "0") int limit) {
+        return ResponseEntity.ok(friendService.getMutualFriends(userId, otherId, offset, limit));
+    }
+
+    @PostMapping("/mutual/batch")
+    @Operation(summary = "Общие друзья для набора пар",
+            description = "Возвращает количество общих друзей для каждой переданной пары"
+                    + " пользователей в исходном порядке")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Количества успешно посчитаны"),
+        @ApiResponse(responseCode = "400", description = "Пустой или слишком большой список пар")
+    })
+    public ResponseEntity<List<MutualFriendsDto>> countMutualFriends(
+            @RequestBody List<FriendPairDto> pairs) {
+        return ResponseEntity.ok(friendService.countMutualFriends(pairs));
+    }
+
+    @GetMapping("/{userId}/recommendations")
+    @Operation(summary = "Возможные друзья",
+            description = "Возвращает пользователей из второго круга общения, ранжированных"
+                    + " по числу общих друзей и, при withInterests=true, общих интересов")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Рекомендации успешно получены"),
+        @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса")
+    })
+    public ResponseEntity<List<FriendRecommendationDto>> getRecommendations(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean withInterests) {
+        return ResponseEntity.ok(friendRecommendationService.recommend(userId, limit,
+                withInterests));
+    }
+
+    @GetMapping("/{userId}/path/{otherId}")
+    @Operation(summary = "Степень знакомства",
+            description = "Возвращает кратчайшую цепочку друзей между двумя пользователями"
+                    + " не длиннее maxDepth, число просмотренных вершин и время поиска")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Поиск завершён (путь найден или нет)"),
+        @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса"),
+        @ApiResponse(responseCode = "422", description = "Превышен бюджет поиска")
+    })
+    public ResponseEntity<FriendPathDto> findPath(
+            @PathVariable Long userId,
+            @PathVariable Long otherId,
+            @RequestParam(defaultValue = "6") int maxDepth) {
+        FriendPathDto result = friendPathService.findPath(userId, otherId, maxDepth);
+        if (result.getStatus() == PathSearchStatus.BUDGET_EXCEEDED) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,35 @@
+package com.kirill.meetyou.controller;
+
+import com.kirill.meetyou.dto.InterestPopularityDto;
+import com.kirill.meetyou.service.InterestService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/interests")
+@RequiredArgsConstructor
+@Tag(name = "Статистика интересов", description = "API для получения популярности интересов")
+public class InterestStatsController {
+    private final InterestService interestService;
+
+    @GetMapping("/top")
+    @Operation(summary = "Топ популярных интересов",
+            description = "Возвращает самые популярные интересы по числу пользователей")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Топ интересов успешно получен"),
+        @ApiResponse(responseCode = "400", description = "Некорректный размер топа")
+    })
+    public ResponseEntity<List<InterestPopularityDto>> getTopInterests(
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(interestService.getTopInterests(limit));
+    }
+}
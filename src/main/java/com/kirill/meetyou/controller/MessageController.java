@@ -1,30 +1,49 @@
 package com.kirill.meetyou.controller;
 
+import com.kirill.meetyou.dto.ConversationPageDto;
+import com.kirill.meetyou.dto.InboxPageDto;
 import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.dto.MessageSearchPageDto;
+import com.kirill.meetyou.dto.RateLimitStatsDto;
+import com.kirill.meetyou.service.MessageLongPollService;
+import com.kirill.meetyou.service.MessageRateLimiter;
 import com.kirill.meetyou.service.MessageService;
+import com.kirill.meetyou.service.MessageStreamService;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+// Лимиты частоты проверяются здесь, до транзакционных методов сервиса: отклонённый запрос
+// не открывает транзакцию и не занимает соединение из пула
 @RestController
 @RequestMapping("/api/messages")
 @RequiredArgsConstructor
 public class MessageController {
     private final MessageService messageService;
+    private final MessageStreamService messageStreamService;
+    private final MessageLongPollService messageLongPollService;
+    private final MessageRateLimiter messageRateLimiter;
 
     @PostMapping
     public ResponseEntity<MessageDto> sendMessage(
             @RequestParam Long senderId,
             @RequestParam Long receiverId,
             @RequestParam String content) {
+        messageRateLimiter.check(MessageRateLimiter.Endpoint.SEND, senderId);
         return ResponseEntity.ok(messageService.sendMessage(senderId, receiverId, content));
     }
 
+    // Устарело: только последние 200 сообщений; для истории — /conversation/page
+    @Deprecated
     @GetMapping("/conversation")
     public ResponseEntity<List<MessageDto>> getConversation(
             @RequestParam Long user1Id,
@@ -32,16 +51,76 @@ public class MessageController {
         return ResponseEntity.ok(messageService.getConversation(user1Id, user2Id));
     }
 
+    @GetMapping("/conversation/page")
+    public ResponseEntity<ConversationPageDto> getConversationPage(
+            @RequestParam Long user1Id,
+            @RequestParam Long user2Id,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(messageService.getConversationPage(
+                user1Id, user2Id, beforeId, afterId, limit));
+    }
+
+    // Входящие: переписки по последней активности с превью и числом непрочитанных
+    @GetMapping("/inbox")
+    public ResponseEntity<InboxPageDto> getInbox(
+            @RequestParam Long userId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(messageService.getInbox(userId, beforeId, limit));
+    }
+
+    // Полнотекстовый поиск по всем перепискам пользователя, по убыванию релевантности
+    @GetMapping("/search")
+    public ResponseEntity<MessageSearchPageDto> searchMessages(
+            @RequestParam Long userId,
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit) {
+        messageRateLimiter.check(MessageRateLimiter.Endpoint.SEARCH, userId);
+        return ResponseEntity.ok(messageService.searchMessages(userId, query, offset, limit));
+    }
+
+    // Полный текст сообщения, которое в списках пришло с truncated = true
+    @GetMapping("/{messageId}")
+    public ResponseEntity<MessageDto> getMessage(
+            @PathVariable Long messageId,
+            @RequestParam Long userId) {
+        return ResponseEntity.ok(messageService.getMessage(userId, messageId));
+    }
+
+    // Поток новых входящих и исходящих сообщений пользователя (Server-Sent Events)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(@RequestParam Long userId) {
+        return messageStreamService.open(userId);
+    }
+
+    // Long-poll: сразу отдаёт сообщения новее since или ждёт до timeout мс
+    @GetMapping("/updates")
+    public DeferredResult<List<MessageDto>> getUpdates(
+            @RequestParam Long userId,
+            @RequestParam long since,
+            @RequestParam(defaultValue = "30000") long timeout) {
+        return messageLongPollService.waitForMessages(userId, since, timeout);
+    }
+
+    // Сколько запросов пропущено и отклонено лимитами по каждой точке входа
+    @GetMapping("/rate-limit/stats")
+    public ResponseEntity<List<RateLimitStatsDto>> getRateLimitStats() {
+        return ResponseEntity.ok(messageRateLimiter.getStats());
+    }
+
     @GetMapping("/unread/count")
     public ResponseEntity<Long> getUnreadMessagesCount(@RequestParam Long userId) {
         return ResponseEntity.ok(messageService.getUnreadMessagesCount(userId));
     }
 
     @PostMapping("/mark-as-read")
-    public ResponseEntity<Void> markMessagesAsRead(
+    public ResponseEntity<Integer> markMessagesAsRead(
             @RequestParam Long userId,
             @RequestParam Long interlocutorId) {
-        messageService.markMessagesAsRead(userId, interlocutorId);
-        return ResponseEntity.ok().build();
+        messageRateLimiter.check(MessageRateLimiter.Endpoint.MARK_READ, userId);
+        return ResponseEntity.ok(messageService.markMessagesAsRead(userId, interlocutorId));
     }
 }
\ No newline at end of file
@@ -2,8 +2,8 @@ package com.kirill.meetyou.controller;
 
 import com.kirill.meetyou.dto.BulkResponse;
 import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserDto;
 import com.kirill.meetyou.model.User;
-import com.kirill.meetyou.repository.UserRepository;
 import com.kirill.meetyou.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -29,7 +29,6 @@ import org.springframework.web.server.ResponseStatusException;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
-    private final UserRepository userRepository;
 
     @Operation(summary = "Получить всех пользователей",
             description = "Возвращает список всех пользователей системы")
@@ -100,9 +99,9 @@ public class UserController {
     @ApiResponse(responseCode = "200",
             description = "Список пользователей успешно получен")
     @GetMapping("/by-interest")
-    public ResponseEntity<List<User>> getUsersByInterest(
+    public ResponseEntity<List<UserDto>> getUsersByInterest(
             @RequestParam String interestType) {
-        return ResponseEntity.ok(userRepository.findUsersByInterestType(interestType));
+        return ResponseEntity.ok(userService.findByInterest(interestType));
     }
 
     @Operation(summary = "Поиск по всем интересам",
@@ -112,14 +111,10 @@ public class UserController {
         @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
     })
     @GetMapping("/by-all-interests")
-    public ResponseEntity<List<User>> getUsersByAllInterests(
+    public ResponseEntity<List<UserDto>> getUsersByAllInterests(
             @RequestParam Set<String> interestTypes) {
-        if (interestTypes == null || interestTypes.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Не указаны интересы для поиска");
-        }
-        return ResponseEntity.ok(userRepository.findUsersByAllInterestTypes(interestTypes,
-                interestTypes.size()));
+        requireInterestTypes(interestTypes);
+        return ResponseEntity.ok(userService.findByAllInterests(interestTypes));
     }
 
     @Operation(summary = "Поиск по любому из интересов",
@@ -130,12 +125,52 @@ public class UserController {
         @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
     })
     @GetMapping("/by-any-interest")
-    public ResponseEntity<List<User>> getUsersByAnyInterest(
+    public ResponseEntity<List<UserDto>> getUsersByAnyInterest(
+            @RequestParam Set<String> interestTypes) {
+        requireInterestTypes(interestTypes);
+        return ResponseEntity.ok(userService.findByAnyInterest(interestTypes));
+    }
+
+    @Operation(summary = "Количество пользователей с интересом",
+            description = "Возвращает число пользователей, у которых есть указанный интерес")
+    @ApiResponse(responseCode = "200", description = "Количество успешно получено")
+    @GetMapping("/by-interest/count")
+    public ResponseEntity<Long> countUsersByInterest(
+            @RequestParam String interestType) {
+        return ResponseEntity.ok(userService.countByInterest(interestType));
+    }
+
+    @Operation(summary = "Количество пользователей со всеми интересами",
+            description = "Возвращает число пользователей, у которых есть все указанные интересы")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Количество успешно получено"),
+        @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
+    })
+    @GetMapping("/by-all-interests/count")
+    public ResponseEntity<Long> countUsersByAllInterests(
             @RequestParam Set<String> interestTypes) {
+        requireInterestTypes(interestTypes);
+        return ResponseEntity.ok(userService.countByAllInterests(interestTypes));
+    }
+
+    @Operation(summary = "Количество пользователей с любым из интересов",
+            description = "Возвращает число пользователей, у которых"
+                    + " есть хотя бы один из указанных интересов")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Количество успешно получено"),
+        @ApiResponse(responseCode = "400", description = "Не указаны интересы для поиска")
+    })
+    @GetMapping("/by-any-interest/count")
+    public ResponseEntity<Long> countUsersByAnyInterest(
+            @RequestParam Set<String> interestTypes) {
+        requireInterestTypes(interestTypes);
+        return ResponseEntity.ok(userService.countByAnyInterest(interestTypes));
+    }
+
+    private void requireInterestTypes(Set<String> interestTypes) {
         if (interestTypes == null || interestTypes.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Не указаны интересы для поиска");
         }
-        return ResponseEntity.ok(userRepository.findUsersByAnyInterestTypes(interestTypes));
     }
-}
\ No newline at end of file
+}
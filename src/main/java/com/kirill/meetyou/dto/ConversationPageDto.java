@@ -0,0 +1,14 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class ConversationPageDto {
+    private List<MessageDto> messages;  // От новых к старым
+    private Long newestId;
+    private Long oldestId;
+    private boolean hasMore;            // Есть ли ещё сообщения в направлении запроса
+}
@@ -0,0 +1,13 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+// Друзья — те, кто добавил пользователя, как в /{userId}/all и /{userId}/count
+@Data
+@Builder
+public class FriendPageDto {
+    private List<FriendSummaryDto> items;
+    private Long nextCursor;  // null на последней странице
+}
@@ -0,0 +1,13 @@
+package com.kirill.meetyou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendPairDto {
+    private Long userId;
+    private Long otherId;
+}
@@ -0,0 +1,19 @@
+package com.kirill.meetyou.dto;
+
+import com.kirill.meetyou.enums.PathSearchStatus;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+// Путь проходит по связям user_friends в любом направлении
+@Data
+@Builder
+public class FriendPathDto {
+    private Long fromId;
+    private Long toId;
+    private PathSearchStatus status;
+    private Integer degrees;
+    private List<Long> path;
+    private int nodesExpanded;
+    private long elapsedMicros;
+}
@@ -0,0 +1,13 @@
+package com.kirill.meetyou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// mutualFriends считается по связям в любом направлении, как в MutualFriendsDto
+@Data
+@AllArgsConstructor
+public class FriendRecommendationDto {
+    private Long userId;
+    private int mutualFriends;
+    private int sharedInterests;
+}
@@ -0,0 +1,14 @@
+package com.kirill.meetyou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSummaryDto {
+    private Long id;
+    private String name;
+    private String mainPhotoUrl;  // null, если главное фото не выбрано
+}
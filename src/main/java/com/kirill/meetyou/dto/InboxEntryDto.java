@@ -0,0 +1,16 @@
+package com.kirill.meetyou.dto;
+
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class InboxEntryDto {
+    private Long interlocutorId;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastMessagePreview;  // Начало текста, не больше 100 символов
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+}
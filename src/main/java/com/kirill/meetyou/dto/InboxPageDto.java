@@ -0,0 +1,12 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class InboxPageDto {
+    private List<InboxEntryDto> items;  // По убыванию последней активности
+    private Long nextCursor;            // lastMessageId последней строки; null на последней странице
+}
@@ -0,0 +1,11 @@
+package com.kirill.meetyou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class InterestPopularityDto {
+    private String interestType;
+    private Long usersCount;
+}
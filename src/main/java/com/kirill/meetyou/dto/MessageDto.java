@@ -13,4 +13,5 @@ public class MessageDto {
     private Long senderId;
     private Long receiverId;
     private boolean isRead;
+    private boolean truncated;  // content — только начало длинного текста
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class MessageSearchPageDto {
+    private List<MessageDto> messages;  // По убыванию релевантности
+    private int offset;
+    private boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.kirill.meetyou.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+// Общие связи в любом направлении user_friends, а не пересечение списков /{userId}/all
+@Data
+@Builder
+public class MutualFriendsDto {
+    private Long userId;
+    private Long otherId;
+    private int count;
+    private List<Long> friendIds;  // Заполняется только при запросе страницы id
+}
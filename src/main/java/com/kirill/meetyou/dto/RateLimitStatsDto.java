@@ -0,0 +1,15 @@
+package com.kirill.meetyou.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class RateLimitStatsDto {
+    private String endpoint;
+    private long allowed;
+    private long throttled;
+    private int trackedSenders;
+    // Запросы новых отправителей, учтённые общей корзиной, потому что таблица была заполнена
+    private long overflowed;
+}
@@ -0,0 +1,24 @@
+package com.kirill.meetyou.dto;
+
+import java.time.LocalDate;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class UserDto {
+    private Long id;
+    private String name;
+    private String email;
+    private LocalDate birth;
+    private Integer age;
+    private Set<String> interests;
+
+    // Для выборок в UserRepository: интересы заполняются отдельным запросом
+    public UserDto(Long id, String name, String email, LocalDate birth, Integer age) {
+        this(id, name, email, birth, age, null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.kirill.meetyou.enums;
+
+public enum PathSearchStatus {
+    FOUND,
+    NOT_FOUND,
+    BUDGET_EXCEEDED
+}
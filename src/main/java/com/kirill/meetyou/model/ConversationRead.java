@@ -0,0 +1,51 @@
+package com.kirill.meetyou.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Отметка прочтения: сообщения переписки с id не больше lastReadMessageId прочитаны userId
+@Getter
+@Setter
+@Entity
+@Table(name = "conversation_reads")
+@IdClass(ConversationRead.Key.class)
+public class ConversationRead {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "conversation_id", length = 41)
+    private String conversationId;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId;
+
+    // Время сообщения-отметки: по нему запросы непрочитанных отсекают старые секции messages.
+    // null, пока отметки нет (lastReadMessageId = 0)
+    @Column(name = "last_read_at")
+    private LocalDateTime lastReadAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private String conversationId;
+    }
+}
@@ -0,0 +1,59 @@
+package com.kirill.meetyou.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Строка входящих пользователя: последняя активность переписки и число непрочитанных.
+// Пишется только ConversationSummaryRepository.recordMessages и при прочтении
+@Getter
+@Setter
+@Entity
+@Table(name = "conversation_summaries")
+@IdClass(ConversationSummary.Key.class)
+public class ConversationSummary {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "conversation_id", length = 41)
+    private String conversationId;
+
+    @Column(name = "interlocutor_id", nullable = false)
+    private Long interlocutorId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private Long lastSenderId;
+
+    @Column(name = "last_message_preview", nullable = false, length = 100)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private String conversationId;
+    }
+}
@@ -1,6 +1,7 @@
 package com.kirill.meetyou.model;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -8,6 +9,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 import lombok.Getter;
@@ -18,12 +20,24 @@ import lombok.Setter;
 @Entity
 @Table(name = "messages")
 public class Message {
+    // Насколько время сообщения может отставать от времени сообщения с меньшим id.
+    // id выдаётся при вставке, время — чуть раньше; запись, у которой между ними прошло
+    // больше, откатывается (MessageService.sendMessage). Запросы по диапазонам id
+    // отсекают секции старше границы минус этот запас
+    public static final int ID_ORDER_SLACK_SECONDS = 60;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Длинный текст хранится сжатым (MessageBody), для списков есть preview
+    @Convert(converter = MessageBodyConverter.class)
     @Column(nullable = false, columnDefinition = "TEXT")
-    private String content;
+    private MessageBody content;
+
+    // Начало текста, только у сжатых сообщений
+    @Column(name = "preview", length = MessageBody.PREVIEW_LENGTH)
+    private String preview;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
@@ -36,10 +50,39 @@ public class Message {
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
+    // Больше не обновляется: прочтение хранится отметками в conversation_reads
     @Column(name = "is_read", nullable = false)
     private boolean isRead = false;
 
+    // Ключ переписки "меньший id:больший id", одинаковый для обоих направлений
+    @Column(name = "conversation_id", nullable = false, updatable = false, length = 41)
+    private String conversationId;
+
     public Message() {
         this.timestamp = LocalDateTime.now();
     }
+
+    public String getContent() {
+        return content == null ? null : content.text();
+    }
+
+    public void setContent(String text) {
+        this.content = MessageBody.of(text);
+        this.preview = content.preview();
+    }
+
+    public boolean isContentCompressed() {
+        return content != null && content.isCompressed();
+    }
+
+    public static String conversationIdOf(long user1Id, long user2Id) {
+        return Math.min(user1Id, user2Id) + ":" + Math.max(user1Id, user2Id);
+    }
+
+    @PrePersist
+    void assignConversationId() {
+        if (conversationId == null) {
+            conversationId = conversationIdOf(sender.getId(), receiver.getId());
+        }
+    }
 }
\ No newline at end of file
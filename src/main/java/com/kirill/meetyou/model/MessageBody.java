@@ -0,0 +1,133 @@
+package com.kirill.meetyou.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Текст сообщения в том виде, в каком он лежит в колонке content. Длинный текст хранится
+// сжатым Deflate в Base64 с маркером формата и распаковывается только при первом text().
+// Форматы: без маркера — исходный текст; маркер 0x01 и "D" — сжатый; маркер и "P" —
+// исходный текст, который сам начинается с маркера
+public final class MessageBody {
+    public static final int COMPRESSION_THRESHOLD = 4096;
+    public static final int PREVIEW_LENGTH = 200;
+    private static final char MARKER = '\u0001';
+    private static final char DEFLATE = 'D';
+    private static final char PLAIN = 'P';
+
+    private final String stored;
+    private String text;
+
+    private MessageBody(String stored, String text) {
+        this.stored = stored;
+        this.text = text;
+    }
+
+    public static MessageBody of(String text) {
+        if (text.length() >= COMPRESSION_THRESHOLD) {
+            String compressed = MARKER + "" + DEFLATE
+                    + Base64.getEncoder().encodeToString(deflate(text));
+            // Несжимаемые данные (уже сжатые, случайные) остаются как есть
+            if (compressed.length() < text.length()) {
+                return new MessageBody(compressed, text);
+            }
+        }
+        if (!text.isEmpty() && text.charAt(0) == MARKER) {
+            return new MessageBody(MARKER + "" + PLAIN + text, text);
+        }
+        return new MessageBody(text, text);
+    }
+
+    public static MessageBody fromStored(String stored) {
+        return new MessageBody(stored, null);
+    }
+
+    public String stored() {
+        return stored;
+    }
+
+    public boolean isCompressed() {
+        return stored.length() > 1 && stored.charAt(0) == MARKER && stored.charAt(1) == DEFLATE;
+    }
+
+    public String text() {
+        if (text == null) {
+            text = decode(stored);
+        }
+        return text;
+    }
+
+    // Значение колонки preview: начало текста, только у сжатого тела
+    public String preview() {
+        return isCompressed() ? previewOf(text(), PREVIEW_LENGTH) : null;
+    }
+
+    public static String previewOf(String text, int length) {
+        if (text.length() <= length) {
+            return text;
+        }
+        int end = Character.isHighSurrogate(text.charAt(length - 1)) ? length - 1 : length;
+        return text.substring(0, end);
+    }
+
+    private static String decode(String stored) {
+        if (stored.length() < 2 || stored.charAt(0) != MARKER) {
+            return stored;
+        }
+        return switch (stored.charAt(1)) {
+            case DEFLATE -> inflate(Base64.getDecoder().decode(stored.substring(2)));
+            case PLAIN -> stored.substring(2);
+            default -> stored;
+        };
+    }
+
+    private static byte[] deflate(String text) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 4);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Сжатый текст сообщения обрезан");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Повреждён сжатый текст сообщения", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof MessageBody body && stored.equals(body.stored);
+    }
+
+    @Override
+    public int hashCode() {
+        return stored.hashCode();
+    }
+}
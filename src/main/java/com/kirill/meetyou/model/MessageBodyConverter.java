@@ -0,0 +1,18 @@
+package com.kirill.meetyou.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Загрузка сущности не распаковывает текст: MessageBody делает это при первом обращении
+@Converter
+public class MessageBodyConverter implements AttributeConverter<MessageBody, String> {
+    @Override
+    public String convertToDatabaseColumn(MessageBody body) {
+        return body == null ? null : body.stored();
+    }
+
+    @Override
+    public MessageBody convertToEntityAttribute(String stored) {
+        return stored == null ? null : MessageBody.fromStored(stored);
+    }
+}
@@ -0,0 +1,43 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.model.ConversationRead;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ConversationReadRepository
+        extends JpaRepository<ConversationRead, ConversationRead.Key> {
+
+    List<ConversationRead> findByConversationId(String conversationId);
+
+    List<ConversationRead> findByConversationIdIn(Collection<String> conversationIds);
+
+    // Строка нужна до блокировки, иначе первому прочтению нечего блокировать
+    @Modifying
+    @Query(value = "INSERT INTO conversation_reads (user_id, conversation_id, last_read_message_id,"
+            + " updated_at) VALUES (:userId, :conversationId, 0, now()) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int ensureExists(@Param("userId") Long userId,
+                     @Param("conversationId") String conversationId);
+
+    // Блокировка строки упорядочивает параллельные прочтения одной переписки
+    @Query(value = "SELECT last_read_message_id FROM conversation_reads"
+            + " WHERE user_id = :userId AND conversation_id = :conversationId FOR UPDATE",
+            nativeQuery = true)
+    long lockWatermark(@Param("userId") Long userId,
+                       @Param("conversationId") String conversationId);
+
+    @Modifying
+    @Query(value = "UPDATE conversation_reads SET last_read_message_id = :messageId,"
+            + " last_read_at = :messageAt, updated_at = now()"
+            + " WHERE user_id = :userId AND conversation_id = :conversationId"
+            + " AND last_read_message_id < :messageId", nativeQuery = true)
+    int advance(@Param("userId") Long userId,
+                @Param("conversationId") String conversationId,
+                @Param("messageId") Long messageId,
+                @Param("messageAt") LocalDateTime messageAt);
+}
@@ -0,0 +1,42 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.model.ConversationSummary;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+// Входящие читаются по индексу (user_id, last_message_id DESC) без агрегации по messages
+public interface ConversationSummaryRepository
+        extends JpaRepository<ConversationSummary, ConversationSummary.Key>,
+        ConversationSummaryRepositoryCustom {
+
+    @Query(value = "SELECT * FROM conversation_summaries WHERE user_id = :userId"
+            + " ORDER BY last_message_id DESC LIMIT :limit", nativeQuery = true)
+    List<ConversationSummary> findInbox(@Param("userId") Long userId,
+                                        @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM conversation_summaries WHERE user_id = :userId"
+            + " AND last_message_id < :beforeId"
+            + " ORDER BY last_message_id DESC LIMIT :limit", nativeQuery = true)
+    List<ConversationSummary> findInboxBefore(@Param("userId") Long userId,
+                                              @Param("beforeId") Long beforeId,
+                                              @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE conversation_summaries"
+            + " SET unread_count = GREATEST(unread_count - :count, 0)"
+            + " WHERE user_id = :userId AND conversation_id = :conversationId",
+            nativeQuery = true)
+    int decrementUnread(@Param("userId") Long userId,
+                        @Param("conversationId") String conversationId,
+                        @Param("count") int count);
+
+    // Сумма непрочитанных по строкам входящих для сверки счётчиков в памяти:
+    // [user_id, sum] по первичному ключу (user_id, conversation_id), без обращения к messages
+    @Query(value = "SELECT user_id, SUM(unread_count) FROM conversation_summaries"
+            + " WHERE user_id IN (:userIds) GROUP BY user_id", nativeQuery = true)
+    List<Object[]> sumUnreadByUsers(@Param("userIds") Collection<Long> userIds);
+}
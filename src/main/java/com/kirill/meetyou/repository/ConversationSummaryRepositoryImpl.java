@@ -0,0 +1,53 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.model.Message;
+import com.kirill.meetyou.model.MessageBody;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+public class ConversationSummaryRepositoryImpl implements ConversationSummaryRepositoryCustom {
+    private static final int PREVIEW_LENGTH = 100;
+    // Непрочитанные складываются, последнее сообщение выбирается по большему id, поэтому
+    // результат не зависит от порядка строк в пачке
+    private static final String RECORD_MESSAGE_SQL = "INSERT INTO conversation_summaries AS s"
+            + " (user_id, conversation_id, interlocutor_id, last_message_id, last_sender_id,"
+            + " last_message_preview, last_message_at, unread_count)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT (user_id, conversation_id) DO UPDATE SET"
+            + " unread_count = s.unread_count + EXCLUDED.unread_count,"
+            + " last_message_id = GREATEST(s.last_message_id, EXCLUDED.last_message_id),"
+            + " last_sender_id = CASE WHEN EXCLUDED.last_message_id > s.last_message_id"
+            + " THEN EXCLUDED.last_sender_id ELSE s.last_sender_id END,"
+            + " last_message_preview = CASE WHEN EXCLUDED.last_message_id > s.last_message_id"
+            + " THEN EXCLUDED.last_message_preview ELSE s.last_message_preview END,"
+            + " last_message_at = CASE WHEN EXCLUDED.last_message_id > s.last_message_id"
+            + " THEN EXCLUDED.last_message_at ELSE s.last_message_at END";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // По две строки на сообщение: отправителю без непрочитанного, получателю +1.
+    // Строки сортируются по ключу, чтобы встречные отправки брали блокировки в одном порядке
+    @Override
+    public void recordMessages(List<MessageDto> messages) {
+        List<Object[]> rows = new ArrayList<>(messages.size() * 2);
+        for (MessageDto message : messages) {
+            String conversationId = Message.conversationIdOf(message.getSenderId(),
+                    message.getReceiverId());
+            String preview = MessageBody.previewOf(message.getContent(), PREVIEW_LENGTH);
+            Timestamp sentAt = Timestamp.valueOf(message.getTimestamp());
+            rows.add(new Object[] {message.getSenderId(), conversationId, message.getReceiverId(),
+                    message.getId(), message.getSenderId(), preview, sentAt, 0});
+            rows.add(new Object[] {message.getReceiverId(), conversationId, message.getSenderId(),
+                    message.getId(), message.getSenderId(), preview, sentAt, 1});
+        }
+        rows.sort(Comparator.comparing((Object[] row) -> (String) row[1])
+                .thenComparing(row -> (Long) row[0]));
+        jdbcTemplate.batchUpdate(RECORD_MESSAGE_SQL, rows);
+    }
+}
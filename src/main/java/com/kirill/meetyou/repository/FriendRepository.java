@@ -1,17 +1,58 @@
 package com.kirill.meetyou.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import com.kirill.meetyou.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface FriendRepository extends JpaRepository<User, Long> {
+public interface FriendRepository extends JpaRepository<User, Long>, FriendRepositoryCustom {
     @Query("SELECT u FROM User u JOIN u.friends f WHERE f.id = :userId")
     List<User> findFriendsOfUser(@Param("userId") Long userId);
 
     @Query("SELECT CASE WHEN COUNT(f) > 0 THEN true ELSE false END FROM User u "
             + "JOIN u.friends f WHERE u.id = :userId AND f.id = :friendId")
     boolean existsFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    // Запись напрямую в таблицу связей, без загрузки коллекций friends/friendOf.
+    // Фактически изменённая связь попадает в журнал user_friends_log тем же запросом
+    @Modifying
+    @Query(value = "WITH changed AS (INSERT INTO user_friends (user_id, friend_id)"
+            + " VALUES (:userId, :friendId) ON CONFLICT DO NOTHING RETURNING user_id, friend_id)"
+            + " INSERT INTO user_friends_log (user_id, friend_id, added)"
+            + " SELECT user_id, friend_id, TRUE FROM changed", nativeQuery = true)
+    int insertFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Modifying
+    @Query(value = "WITH changed AS (DELETE FROM user_friends"
+            + " WHERE user_id = :userId AND friend_id = :friendId RETURNING user_id, friend_id)"
+            + " INSERT INTO user_friends_log (user_id, friend_id, added)"
+            + " SELECT user_id, friend_id, FALSE FROM changed", nativeQuery = true)
+    int deleteFriendship(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    // Все связи пользователя в обе стороны — перед удалением самого пользователя. Удалённые
+    // строки попадают в журнал, счётчик friends_count уменьшается у тех, кого он добавлял
+    @Modifying
+    @Query(value = "WITH changed AS (DELETE FROM user_friends"
+            + " WHERE user_id = :userId OR friend_id = :userId RETURNING user_id, friend_id),"
+            + " logged AS (INSERT INTO user_friends_log (user_id, friend_id, added)"
+            + " SELECT user_id, friend_id, FALSE FROM changed)"
+            + " UPDATE users u SET friends_count = u.friends_count - c.cnt"
+            + " FROM (SELECT friend_id, COUNT(*) AS cnt FROM changed"
+            + " WHERE friend_id <> :userId GROUP BY friend_id) c"
+            + " WHERE u.id = c.friend_id", nativeQuery = true)
+    int deleteAllFriendships(@Param("userId") Long userId);
+
+    // Денормализованный счётчик друзей (users.friends_count), поддерживается вместе с user_friends
+    @Modifying
+    @Query(value = "UPDATE users SET friends_count = friends_count + :delta WHERE id IN (:ids)",
+            nativeQuery = true)
+    int adjustFriendsCount(@Param("ids") Collection<Long> ids, @Param("delta") int delta);
+
+    @Query(value = "SELECT friends_count FROM users WHERE id = :userId", nativeQuery = true)
+    Optional<Integer> findFriendsCount(@Param("userId") Long userId);
 }
@@ -0,0 +1,11 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.dto.FriendSummaryDto;
+import java.util.List;
+
+public interface FriendRepositoryCustom {
+    // Пакетная вставка связей userId -> friendIds[i]; для каждой строки 1 — вставлена, 0 — уже была
+    int[] insertFriendships(long userId, long[] friendIds);
+
+    List<FriendSummaryDto> findFriendPage(long userId, long afterId, int limit);
+}
@@ -0,0 +1,51 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.dto.FriendSummaryDto;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+public class FriendRepositoryImpl implements FriendRepositoryCustom {
+    private static final String INSERT_FRIENDSHIP_SQL = "WITH changed AS ("
+            + "INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)"
+            + " ON CONFLICT DO NOTHING RETURNING user_id, friend_id)"
+            + " INSERT INTO user_friends_log (user_id, friend_id, added)"
+            + " SELECT user_id, friend_id, TRUE FROM changed";
+    // Ключ страницы — id друга; индекс (friend_id, user_id) отдаёт строки уже упорядоченными
+    private static final String FRIEND_PAGE_SQL = "SELECT u.id, u.name,"
+            + " (SELECT p.photo_url FROM photos p WHERE p.user_id = u.id AND p.is_main = 'true'"
+            + " ORDER BY p.id LIMIT 1) AS main_photo_url"
+            + " FROM user_friends f JOIN users u ON u.id = f.user_id"
+            + " WHERE f.friend_id = ? AND f.user_id > ?"
+            + " ORDER BY f.user_id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] insertFriendships(long userId, long[] friendIds) {
+        return jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, userId);
+                ps.setLong(2, friendIds[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return friendIds.length;
+            }
+        });
+    }
+
+    @Override
+    public List<FriendSummaryDto> findFriendPage(long userId, long afterId, int limit) {
+        return jdbcTemplate.query(FRIEND_PAGE_SQL,
+                (rs, rowNum) -> new FriendSummaryDto(rs.getLong("id"), rs.getString("name"),
+                        rs.getString("main_photo_url")),
+                userId, afterId, limit);
+    }
+}
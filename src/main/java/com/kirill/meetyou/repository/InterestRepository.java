@@ -1,11 +1,19 @@
 package com.kirill.meetyou.repository;
 
+import com.kirill.meetyou.dto.InterestPopularityDto;
 import com.kirill.meetyou.model.Interest;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface InterestRepository extends JpaRepository<Interest, Long> {
     Optional<Interest> findByInterestType(String interestType);
 
     boolean existsByInterestType(String interestType);
-}
\ No newline at end of file
+
+    // Полный пересчёт популярности, используется только для периодической сверки счётчиков
+    @Query("SELECT new com.kirill.meetyou.dto.InterestPopularityDto(i.interestType, COUNT(u)) "
+            + "FROM Interest i LEFT JOIN i.users u GROUP BY i.interestType")
+    List<InterestPopularityDto> countUsersPerInterest();
+}
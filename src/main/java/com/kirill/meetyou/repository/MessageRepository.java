@@ -2,27 +2,137 @@ package com.kirill.meetyou.repository;
 
 import com.kirill.meetyou.model.Message;
 
+import java.time.LocalDateTime;
 import java.util.List;
-
-import com.kirill.meetyou.model.User;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface MessageRepository extends JpaRepository<Message, Long> {
+// Запросы переписки идут по conversation_id и индексу (conversation_id, timestamp, id);
+// таблица секционирована по месяцам timestamp (MessagePartitionService), поэтому выборки
+// по диапазонам id ограничиваются и по timestamp, чтобы не обходить все секции.
+// Граница берётся по времени сообщения-отметки с запасом Message.ID_ORDER_SLACK_SECONDS.
+// Сообщение по одному id без времени (findUserMessage, время since) ищется по первичному
+// ключу (id, timestamp) каждой секции — одно обращение к индексу на месяц
+public interface MessageRepository extends JpaRepository<Message, Long>, MessageRepositoryCustom {
+
+    // Последняя страница переписки, от новых к старым
+    @Query(value = "SELECT * FROM messages WHERE conversation_id = :conversationId"
+            + " ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Message> findConversationLatest(@Param("conversationId") String conversationId,
+                                         @Param("limit") int limit);
+
+    // Время сообщения-курсора. Ищется только в этой переписке: id из другой переписки
+    // курсором не считается. Время курсора неизвестно, поэтому это проба первичного
+    // ключа в каждой секции; сама страница потом ограничена временем курсора
+    @Query("SELECT m.timestamp FROM Message m"
+            + " WHERE m.id = :id AND m.conversationId = :conversationId")
+    Optional<LocalDateTime> findConversationMessageTime(
+            @Param("conversationId") String conversationId, @Param("id") Long id);
+
+    // Сообщения старше курсора (beforeAt, beforeId). Граница по timestamp — параметр
+    // запроса, поэтому более новые помесячные секции отсекаются до начала выполнения
+    @Query(value = "SELECT * FROM messages m WHERE m.conversation_id = :conversationId"
+            + " AND m.timestamp <= :beforeAt"
+            + " AND (m.timestamp, m.id) < (CAST(:beforeAt AS TIMESTAMP), :beforeId)"
+            + " ORDER BY m.timestamp DESC, m.id DESC LIMIT :limit", nativeQuery = true)
+    List<Message> findConversationBefore(@Param("conversationId") String conversationId,
+                                         @Param("beforeAt") LocalDateTime beforeAt,
+                                         @Param("beforeId") Long beforeId,
+                                         @Param("limit") int limit);
+
+    // Сообщения новее курсора, от старых к новым
+    @Query(value = "SELECT * FROM messages m WHERE m.conversation_id = :conversationId"
+            + " AND m.timestamp >= :afterAt"
+            + " AND (m.timestamp, m.id) > (CAST(:afterAt AS TIMESTAMP), :afterId)"
+            + " ORDER BY m.timestamp ASC, m.id ASC LIMIT :limit", nativeQuery = true)
+    List<Message> findConversationAfter(@Param("conversationId") String conversationId,
+                                        @Param("afterAt") LocalDateTime afterAt,
+                                        @Param("afterId") Long afterId,
+                                        @Param("limit") int limit);
+
+    // Новые сообщения пользователя после since для long-poll: объединение двух диапазонов
+    // id > since по индексам (receiver_id, id) и (sender_id, id), каждый не длиннее limit.
+    // Клиент передаёт недавний id, поэтому просматривается только свежий хвост каждого индекса,
+    // а граница по времени since-сообщения оставляет только последние секции
+    @Query(value = "WITH since AS (SELECT COALESCE((SELECT s.timestamp FROM messages s"
+            + " WHERE s.id = :sinceId), CAST('-infinity' AS TIMESTAMP))"
+            + " - INTERVAL '" + Message.ID_ORDER_SLACK_SECONDS + " seconds' AS bound)"
+            + " SELECT * FROM ("
+            + "(SELECT * FROM messages WHERE receiver_id = :userId AND id > :sinceId"
+            + " AND timestamp >= (SELECT bound FROM since) ORDER BY id ASC LIMIT :limit)"
+            + " UNION ALL"
+            + " (SELECT * FROM messages WHERE sender_id = :userId AND receiver_id <> :userId"
+            + " AND id > :sinceId AND timestamp >= (SELECT bound FROM since)"
+            + " ORDER BY id ASC LIMIT :limit)) u"
+            + " ORDER BY id ASC LIMIT :limit", nativeQuery = true)
+    List<Message> findUserMessagesSince(@Param("userId") Long userId,
+                                        @Param("sinceId") Long sinceId,
+                                        @Param("limit") int limit);
+
+    // Полнотекстовый поиск по переписке пользователя: GIN по document в message_search
+    // вместе с первичным ключом (user_id, message_id) отбирает только его строки.
+    // Страница выбирается до соединения, и каждое из не более limit сообщений достаётся
+    // по (id, timestamp) из одной секции
+    @Query(value = "SELECT m.* FROM (SELECT s.message_id, s.sent_at,"
+            + " ts_rank_cd(s.document, q) AS rank"
+            + " FROM message_search s, websearch_to_tsquery('russian', :query) q"
+            + " WHERE s.user_id = :userId AND s.document @@ q"
+            + " ORDER BY rank DESC, s.message_id DESC LIMIT :limit OFFSET :offset) p"
+            + " JOIN messages m ON m.id = p.message_id AND m.timestamp = p.sent_at"
+            + " ORDER BY p.rank DESC, p.message_id DESC", nativeQuery = true)
+    List<Message> searchUserMessages(@Param("userId") Long userId,
+                                     @Param("query") String query,
+                                     @Param("offset") int offset,
+                                     @Param("limit") int limit);
+
+    // Сообщение участника по id; чужое сообщение не находится
+    @Query(value = "SELECT * FROM messages WHERE id = :messageId"
+            + " AND (sender_id = :userId OR receiver_id = :userId)", nativeQuery = true)
+    Optional<Message> findUserMessage(@Param("userId") Long userId,
+                                      @Param("messageId") Long messageId);
 
-    // Для получения переписки между двумя пользователями
-    @Query("SELECT m FROM Message m WHERE (m.sender = :user1 AND m.receiver = :user2) "
-            + "OR (m.sender = :user2 AND m.receiver = :user1) ORDER BY m.timestamp ASC")
-    List<Message> findConversation(@Param("user1") User user1, @Param("user2") User user2);
+    // Последнее полученное сообщение новее отметки afterId — правый край индекса
+    // (receiver_id, conversation_id, id). afterAt — время сообщения-отметки
+    // из conversation_reads.last_read_at
+    @Query(value = "SELECT * FROM messages m WHERE m.conversation_id = :conversationId"
+            + " AND m.receiver_id = :receiverId AND m.id > :afterId"
+            + " AND m.timestamp >= CAST(:afterAt AS TIMESTAMP)"
+            + " - INTERVAL '" + Message.ID_ORDER_SLACK_SECONDS + " seconds'"
+            + " ORDER BY m.id DESC LIMIT 1", nativeQuery = true)
+    Optional<Message> findLastReceived(@Param("conversationId") String conversationId,
+                                       @Param("receiverId") Long receiverId,
+                                       @Param("afterId") Long afterId,
+                                       @Param("afterAt") LocalDateTime afterAt);
 
-    // Для поиска непрочитанных сообщений от конкретного отправителя
-    @Query("SELECT m FROM Message m WHERE m.receiver = :receiver "
-            + "AND m.sender = :sender AND m.isRead = false")
-    List<Message> findByReceiverAndSenderAndIsReadFalse(@Param("rece"
-            + "iver") User receiver, @Param("sender") User sender);
+    // Граница по времени та же, что в findLastReceived
+    @Query(value = "SELECT COUNT(*) FROM messages m WHERE m.conversation_id = :conversationId"
+            + " AND m.receiver_id = :receiverId AND m.id > :afterId AND m.id <= :upToId"
+            + " AND m.timestamp >= CAST(:afterAt AS TIMESTAMP)"
+            + " - INTERVAL '" + Message.ID_ORDER_SLACK_SECONDS + " seconds'", nativeQuery = true)
+    long countReceivedBetween(@Param("conversationId") String conversationId,
+                              @Param("receiverId") Long receiverId,
+                              @Param("afterId") Long afterId,
+                              @Param("upToId") Long upToId,
+                              @Param("afterAt") LocalDateTime afterAt);
 
-    // Для подсчета непрочитанных сообщений
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver = :receiver AND m.isRead = false")
-    long countByReceiverAndIsReadFalse(@Param("receiver") User receiver);
-}
\ No newline at end of file
+    // Непрочитанные по всем перепискам: обход идёт по строкам conversation_summaries
+    // пользователя, и для каждой переписки считается диапазон id > отметки прочтения
+    // в индексе (receiver_id, conversation_id, id). Прочитанные до конца переписки
+    // отсекаются по last_message_id без обращения к messages, у остальных секции старше
+    // отметки отсекаются по её last_read_at. Без строки в conversation_reads непрочитана
+    // вся переписка
+    @Query(value = "SELECT COALESCE(SUM(u.unread), 0) FROM conversation_summaries s"
+            + " LEFT JOIN conversation_reads r"
+            + " ON r.user_id = s.user_id AND r.conversation_id = s.conversation_id"
+            + " CROSS JOIN LATERAL (SELECT COUNT(*) AS unread FROM messages m"
+            + " WHERE m.receiver_id = s.user_id AND m.conversation_id = s.conversation_id"
+            + " AND m.id > COALESCE(r.last_read_message_id, 0)"
+            + " AND m.timestamp >= COALESCE(r.last_read_at, CAST('-infinity' AS TIMESTAMP))"
+            + " - INTERVAL '" + Message.ID_ORDER_SLACK_SECONDS + " seconds') u"
+            + " WHERE s.user_id = :userId"
+            + " AND s.last_message_id > COALESCE(r.last_read_message_id, 0)",
+            nativeQuery = true)
+    long countUnread(@Param("userId") Long userId);
+}
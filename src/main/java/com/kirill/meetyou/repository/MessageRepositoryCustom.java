@@ -0,0 +1,8 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.dto.MessageDto;
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+    void indexForSearch(List<MessageDto> messages);
+}
@@ -0,0 +1,38 @@
+package com.kirill.meetyou.repository;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.model.Message;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+    // Документ строится в БД той же конфигурацией, что и запрос поиска (MessageRepository),
+    // один раз на сообщение для обеих строк участников. Индексируется только начало текста:
+    // to_tsvector по очень длинному тексту дорог и может превысить предел размера tsvector
+    private static final int SEARCH_DOCUMENT_LENGTH = 10_000;
+    private static final String INDEX_MESSAGE_SQL = "INSERT INTO message_search"
+            + " (user_id, message_id, conversation_id, sent_at, document)"
+            + " SELECT p.user_id, ?, ?, ?, d.document"
+            + " FROM (SELECT to_tsvector('russian', LEFT(?, " + SEARCH_DOCUMENT_LENGTH + "))"
+            + " AS document) d CROSS JOIN (VALUES (?), (?)) AS p (user_id)"
+            + " ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // По строке на каждого участника: поиск пользователя идёт только по его строкам
+    @Override
+    public void indexForSearch(List<MessageDto> messages) {
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (MessageDto message : messages) {
+            rows.add(new Object[] {message.getId(),
+                    Message.conversationIdOf(message.getSenderId(), message.getReceiverId()),
+                    Timestamp.valueOf(message.getTimestamp()), message.getContent(),
+                    message.getSenderId(), message.getReceiverId()});
+        }
+        jdbcTemplate.batchUpdate(INDEX_MESSAGE_SQL, rows);
+    }
+}
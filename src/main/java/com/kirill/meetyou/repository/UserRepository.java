@@ -1,9 +1,12 @@
 package com.kirill.meetyou.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import com.kirill.meetyou.dto.UserDto;
+import com.kirill.meetyou.dto.UserInterestDto;
 import com.kirill.meetyou.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -13,18 +16,66 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query(value = "select * from users where email = :email", nativeQuery = true)
     Optional<User> findByEmail(String email);
 
-    // Поиск пользователей по названию интереса
-    @Query("SELECT DISTINCT u FROM User u JOIN u.interests i WHERE i.interestType = :interestType")
-    List<User> findUsersByInterestType(@Param("interestType") String interestType);
+    // Поиск пользователей по названию интереса. Выбираются только колонки UserDto
+    // (id, name, email, birth, age): загрузка сущностей User тянула бы по запросу
+    // на связанную bio для каждой строки
+    @Query("SELECT DISTINCT new com.kirill.meetyou.dto.UserDto(u.id, u.name, u.email, u.birth,"
+            + " u.age) FROM User u JOIN u.interests i WHERE i.interestType = :interestType")
+    List<UserDto> findUserDtosByInterestType(@Param("interestType") String interestType);
 
-    @Query("SELECT u FROM User u JOIN u.interests i WHERE i.interestType IN "
-            + ":interestTypes GROUP BY u HAVING COUNT(DISTINCT i) = :interestCount")
-    List<User> findUsersByAllInterestTypes(
+    @Query("SELECT new com.kirill.meetyou.dto.UserDto(u.id, u.name, u.email, u.birth, u.age) "
+            + "FROM User u JOIN u.interests i "
+            + "WHERE i.interestType IN :interestTypes "
+            + "GROUP BY u.id, u.name, u.email, u.birth, u.age "
+            + "HAVING COUNT(DISTINCT i) = :interestCount")
+    List<UserDto> findUserDtosByAllInterestTypes(
             @Param("interestTypes") Set<String> interestTypes,
             @Param("interestCount") long interestCount);
 
-    @Query("SELECT DISTINCT u FROM User u JOIN u.interests i "
-            + "WHERE i.interestType IN :interestTypes")
-    List<User> findUsersByAnyInterestTypes(
+    @Query("SELECT DISTINCT new com.kirill.meetyou.dto.UserDto(u.id, u.name, u.email, u.birth,"
+            + " u.age) FROM User u JOIN u.interests i WHERE i.interestType IN :interestTypes")
+    List<UserDto> findUserDtosByAnyInterestTypes(
             @Param("interestTypes") Set<String> interestTypes);
+
+    // Интересы пачки пользователей одним запросом вместо ленивой загрузки на каждого
+    @Query("SELECT new com.kirill.meetyou.dto.UserInterestDto(u.id, i.interestType) "
+            + "FROM User u JOIN u.interests i WHERE u.id IN :userIds")
+    List<UserInterestDto> findInterestTypesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Счётчики для виджетов: без загрузки и сериализации самих пользователей
+    @Query("SELECT COUNT(DISTINCT u.id) FROM User u JOIN u.interests i "
+            + "WHERE i.interestType = :interestType")
+    long countUsersByInterestType(@Param("interestType") String interestType);
+
+    @Query(value = """
+        SELECT COUNT(*) FROM (
+            SELECT ui.user_id
+            FROM user_interest ui
+            JOIN interests i ON i.id = ui.interest_id
+            WHERE i.interest_type IN (:interestTypes)
+            GROUP BY ui.user_id
+            HAVING COUNT(DISTINCT ui.interest_id) = :interestCount
+        ) matched""",
+            nativeQuery = true)
+    long countUsersByAllInterestTypes(
+            @Param("interestTypes") Set<String> interestTypes,
+            @Param("interestCount") long interestCount);
+
+    @Query("SELECT COUNT(DISTINCT u.id) FROM User u JOIN u.interests i "
+            + "WHERE i.interestType IN :interestTypes")
+    long countUsersByAnyInterestTypes(@Param("interestTypes") Set<String> interestTypes);
+
+    // Число общих интересов пользователя с каждым из кандидатов
+    @Query(value = """
+        SELECT other.user_id, COUNT(*)
+        FROM user_interest own
+        JOIN user_interest other ON other.interest_id = own.interest_id
+        WHERE own.user_id = :userId AND other.user_id IN (:candidateIds)
+        GROUP BY other.user_id""",
+            nativeQuery = true)
+    List<Object[]> countSharedInterests(@Param("userId") Long userId,
+                                        @Param("candidateIds") Collection<Long> candidateIds);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.dto.FriendPathDto;
+import com.kirill.meetyou.enums.PathSearchStatus;
+import com.kirill.meetyou.utils.LongArrayList;
+import com.kirill.meetyou.utils.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Степень знакомства: двунаправленный поиск в ширину по графу дружбы в памяти.
+// Бюджет считается в просмотренных рёбрах, а не в вершинах: один узел-«хаб» с миллионом
+// связей стоит столько же, сколько миллион обычных
+@Slf4j
+@Service
+public class FriendPathService {
+    private static final int MAX_DEPTH = 10;
+
+    private final FriendGraph friendGraph;
+    private final long maxScannedEdges;
+
+    public FriendPathService(
+            FriendGraph friendGraph,
+            @Value("${app.friends.path.max-scanned-edges:1000000}") long maxScannedEdges) {
+        this.friendGraph = friendGraph;
+        this.maxScannedEdges = maxScannedEdges;
+    }
+
+    public FriendPathDto findPath(Long fromId, Long toId, int maxDepth) {
+        if (fromId == null || fromId <= 0 || toId == null || toId <= 0) {
+            throw new IllegalArgumentException("Invalid user ids: " + fromId + ", " + toId);
+        }
+        if (maxDepth <= 0 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Max depth must be between 1 and " + MAX_DEPTH);
+        }
+
+        long startedAt = System.nanoTime();
+        FriendPathDto.FriendPathDtoBuilder result = FriendPathDto.builder()
+                .fromId(fromId)
+                .toId(toId);
+        if (fromId.equals(toId)) {
+            return result.status(PathSearchStatus.FOUND)
+                    .degrees(0)
+                    .path(List.of(fromId))
+                    .elapsedMicros(elapsedMicros(startedAt))
+                    .build();
+        }
+
+        SearchSide forward = new SearchSide(fromId);
+        SearchSide backward = new SearchSide(toId);
+        int expanded = 0;
+        long scanned = 0;
+        long meetingNode = 0;
+        int bestLength = Integer.MAX_VALUE;
+
+        while (bestLength == Integer.MAX_VALUE
+                && forward.depth + backward.depth < maxDepth
+                && !forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            // Расширяем меньший фронт целым уровнем, чтобы найти кратчайшую встречу
+            SearchSide side = forward.frontier.size() <= backward.frontier.size()
+                    ? forward : backward;
+            SearchSide other = side == forward ? backward : forward;
+
+            // Цена уровня известна до обхода: сумма степеней вершин фронта
+            long levelCost = 0;
+            for (int i = 0; i < side.frontier.size(); i++) {
+                long node = side.frontier.get(i);
+                levelCost += friendGraph.countFriends(node) + friendGraph.countFriendOf(node);
+            }
+            if (scanned + levelCost > maxScannedEdges) {
+                log.warn("Path search {} -> {} stopped: budget of {} edges exceeded",
+                        fromId, toId, maxScannedEdges);
+                return result.status(PathSearchStatus.BUDGET_EXCEEDED)
+                        .nodesExpanded(expanded)
+                        .elapsedMicros(elapsedMicros(startedAt))
+                        .build();
+            }
+
+            LongArrayList nextFrontier = new LongArrayList(side.frontier.size() * 4);
+            for (int i = 0; i < side.frontier.size(); i++) {
+                long node = side.frontier.get(i);
+                for (long neighbour : friendGraph.getConnectionIds(node)) {
+                    if (!side.parents.putIfAbsent(neighbour, node)) {
+                        continue;
+                    }
+                    nextFrontier.add(neighbour);
+                    if (other.parents.containsKey(neighbour)) {
+                        int length = side.depth + 1 + other.depthOf(neighbour);
+                        if (length < bestLength) {
+                            bestLength = length;
+                            meetingNode = neighbour;
+                        }
+                    }
+                }
+            }
+            expanded += side.frontier.size();
+            scanned += levelCost;
+            side.frontier = nextFrontier;
+            side.depth++;
+        }
+
+        result.nodesExpanded(expanded);
+        if (bestLength == Integer.MAX_VALUE) {
+            return result.status(PathSearchStatus.NOT_FOUND)
+                    .elapsedMicros(elapsedMicros(startedAt))
+                    .build();
+        }
+
+        List<Long> path = buildPath(forward, backward, meetingNode);
+        log.debug("Path {} -> {} of {} degrees found, {} nodes expanded, {} edges scanned",
+                fromId, toId, bestLength, expanded, scanned);
+        return result.status(PathSearchStatus.FOUND)
+                .degrees(bestLength)
+                .path(path)
+                .elapsedMicros(elapsedMicros(startedAt))
+                .build();
+    }
+
+    private static List<Long> buildPath(SearchSide forward, SearchSide backward, long meetingNode) {
+        List<Long> path = new ArrayList<>();
+        long current = meetingNode;
+        path.add(current);
+        while (current != forward.root) {
+            current = forward.parents.get(current, forward.root);
+            path.add(current);
+        }
+        Collections.reverse(path);
+
+        current = meetingNode;
+        while (current != backward.root) {
+            current = backward.parents.get(current, backward.root);
+            path.add(current);
+        }
+        return path;
+    }
+
+    private static long elapsedMicros(long startedAt) {
+        return (System.nanoTime() - startedAt) / 1_000;
+    }
+
+    // Одна сторона поиска: дерево родителей служит и множеством посещённых вершин
+    private static final class SearchSide {
+        final long root;
+        final LongLongHashMap parents = new LongLongHashMap();
+        LongArrayList frontier = new LongArrayList();
+        int depth;
+
+        SearchSide(long root) {
+            this.root = root;
+            parents.putIfAbsent(root, root);
+            frontier.add(root);
+        }
+
+        int depthOf(long node) {
+            int result = 0;
+            long current = node;
+            while (current != root) {
+                current = parents.get(current, root);
+                result++;
+            }
+            return result;
+        }
+    }
+}
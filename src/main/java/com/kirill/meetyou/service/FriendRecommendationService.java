@@ -0,0 +1,147 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.cache.RecommendationCache;
+import com.kirill.meetyou.dto.FriendRecommendationDto;
+import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.LongIntCounter;
+import com.kirill.meetyou.utils.SortedLongArrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+// «Возможно, вы знакомы»: кандидаты на расстоянии двух шагов в графе дружбы,
+// ранжированные по числу общих друзей и, по запросу, общих интересов
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FriendRecommendationService {
+    private static final int MAX_LIMIT = 50;
+    private static final int MAX_SAMPLED_FRIENDS = 1_000;
+    private static final int MAX_SAMPLED_NEIGHBOURS = 2_000;
+    private static final int PARALLEL_THRESHOLD = 64;
+    private static final int INTEREST_CANDIDATES_FACTOR = 3;
+
+    private static final Comparator<FriendRecommendationDto> BY_RANK =
+            Comparator.comparingInt(FriendRecommendationDto::getMutualFriends).reversed()
+                    .thenComparing(Comparator.comparingInt(
+                            FriendRecommendationDto::getSharedInterests).reversed())
+                    .thenComparing(FriendRecommendationDto::getUserId);
+
+    private final FriendGraph friendGraph;
+    private final UserRepository userRepository;
+    private final RecommendationCache recommendationCache;
+
+    public List<FriendRecommendationDto> recommend(Long userId, int limit, boolean withInterests) {
+        if (userId == null || userId <= 0) {
+            throw new IllegalArgumentException("Invalid user id: " + userId);
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        List<FriendRecommendationDto> cached = recommendationCache.get(userId, withInterests);
+        if (cached == null) {
+            long startedAt = System.currentTimeMillis();
+            cached = compute(userId, withInterests);
+            recommendationCache.put(userId, withInterests, cached);
+            log.debug("Recommendations for user {} computed in {} ms",
+                    userId, System.currentTimeMillis() - startedAt);
+        }
+        return cached.subList(0, Math.min(limit, cached.size()));
+    }
+
+    private List<FriendRecommendationDto> compute(long userId, boolean withInterests) {
+        long[] connections = friendGraph.getConnectionIds(userId);
+        if (connections.length == 0) {
+            return List.of();
+        }
+
+        LongIntCounter mutualCounts = countFriendsOfFriends(userId, connections);
+        int candidatesLimit = withInterests ? MAX_LIMIT * INTEREST_CANDIDATES_FACTOR : MAX_LIMIT;
+        List<FriendRecommendationDto> candidates = topByMutualFriends(mutualCounts,
+                candidatesLimit);
+
+        if (withInterests && !candidates.isEmpty()) {
+            applySharedInterests(userId, candidates);
+        }
+
+        candidates.sort(BY_RANK);
+        return List.copyOf(candidates.subList(0, Math.min(MAX_LIMIT, candidates.size())));
+    }
+
+    // Обход второго уровня с ограничением выборки; у популярных пользователей — параллельно
+    private LongIntCounter countFriendsOfFriends(long userId, long[] connections) {
+        long[] friends = sample(connections, MAX_SAMPLED_FRIENDS);
+        IntStream indexes = IntStream.range(0, friends.length);
+        if (friends.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        return indexes.collect(LongIntCounter::new,
+                (counter, i) -> {
+                    long[] neighbours = sample(friendGraph.getConnectionIds(friends[i]),
+                            MAX_SAMPLED_NEIGHBOURS);
+                    for (long candidate : neighbours) {
+                        if (candidate != userId
+                                && !SortedLongArrays.contains(connections, candidate)) {
+                            counter.increment(candidate);
+                        }
+                    }
+                },
+                LongIntCounter::addAll);
+    }
+
+    private List<FriendRecommendationDto> topByMutualFriends(LongIntCounter counts, int limit) {
+        PriorityQueue<FriendRecommendationDto> heap =
+                new PriorityQueue<>(limit + 1, BY_RANK.reversed());
+        counts.forEach((candidate, mutual) -> {
+            FriendRecommendationDto weakest = heap.peek();
+            if (heap.size() < limit || mutual > weakest.getMutualFriends()
+                    || (mutual == weakest.getMutualFriends() && candidate < weakest.getUserId())) {
+                heap.offer(new FriendRecommendationDto(candidate, mutual, 0));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        });
+        return new ArrayList<>(heap);
+    }
+
+    private void applySharedInterests(long userId, List<FriendRecommendationDto> candidates) {
+        List<Long> candidateIds = candidates.stream()
+                .map(FriendRecommendationDto::getUserId)
+                .toList();
+        Map<Long, Integer> shared = new HashMap<>();
+        for (Object[] row : userRepository.countSharedInterests(userId, candidateIds)) {
+            shared.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        candidates.forEach(candidate ->
+                candidate.setSharedInterests(shared.getOrDefault(candidate.getUserId(), 0)));
+    }
+
+    // Случайная выборка без повторов (частичное перемешивание), исходный массив не меняется
+    private static long[] sample(long[] ids, int maxSize) {
+        if (ids.length <= maxSize) {
+            return ids;
+        }
+        long[] copy = ids.clone();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < maxSize; i++) {
+            int j = i + random.nextInt(copy.length - i);
+            long tmp = copy[i];
+            copy[i] = copy[j];
+            copy[j] = tmp;
+        }
+        long[] result = new long[maxSize];
+        System.arraycopy(copy, 0, result, 0, maxSize);
+        return result;
+    }
+}
@@ -1,65 +1,258 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.cache.RecommendationCache;
+import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.FriendPageDto;
+import com.kirill.meetyou.dto.FriendPairDto;
+import com.kirill.meetyou.dto.FriendSummaryDto;
+import com.kirill.meetyou.dto.MutualFriendsDto;
 import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.FriendRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.LongArrayList;
+import com.kirill.meetyou.utils.SortedLongArrays;
+import com.kirill.meetyou.utils.TransactionUtils;
 import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+// Связь user_friends направленная: addFriend(userId, friendId) пишет ребро userId -> friendId.
+// Друзья пользователя — те, кто добавил его (входящие рёбра): так считают список, страница,
+// счётчик friends_count и проверка дружбы. Общие друзья, рекомендации и поиск пути идут
+// по связям в обе стороны (FriendGraph.getConnectionIds)
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class FriendService {
     private static final String USER_WITH_ID_TEXT = "User with id ";
     private static final String NOT_FOUND_TEXT = " not found";
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 1000;
 
     private final UserRepository userRepository;
     private final FriendRepository friendRepository;
+    private final FriendGraph friendGraph;
+    private final RecommendationCache recommendationCache;
 
     public void addFriend(Long userId, Long friendId) {
         if (userId.equals(friendId)) {
             throw new IllegalArgumentException("User cannot be friend with himself");
         }
+        requireUserExists(userId);
+        requireUserExists(friendId);
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException(USER_WITH_ID_TEXT
-                        + userId + NOT_FOUND_TEXT));
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new EntityNotFoundException(USER_WITH_ID_TEXT
-                        + friendId + NOT_FOUND_TEXT));
-
-        if (friendRepository.existsFriendship(userId, friendId)) {
+        if (friendRepository.insertFriendship(userId, friendId) == 0) {
             throw new IllegalStateException("Users are already friends");
         }
+        friendRepository.adjustFriendsCount(List.of(friendId), 1);
+
+        TransactionUtils.afterCommit(() -> {
+            friendGraph.addFriendship(userId, friendId);
+            invalidateRecommendations(userId, friendId);
+        });
+    }
+
+    public BulkResponse addFriends(Long userId, List<Long> friendIds) {
+        if (friendIds == null || friendIds.isEmpty()) {
+            throw new IllegalArgumentException("Friend ids list must not be empty");
+        }
+        if (friendIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many friend ids, maximum is " + MAX_BATCH_SIZE);
+        }
+        requireUserExists(userId);
+
+        List<String> errors = new ArrayList<>();
+        Set<Long> uniqueIds = new LinkedHashSet<>(friendIds);
+        Set<Long> existing = new HashSet<>(userRepository.findExistingIds(
+                uniqueIds.stream().filter(Objects::nonNull).toList()));
+        LongArrayList candidates = new LongArrayList(uniqueIds.size());
+        for (Long friendId : uniqueIds) {
+            if (friendId == null || friendId.equals(userId)) {
+                errors.add("User cannot be friend with himself or null: " + friendId);
+            } else if (!existing.contains(friendId)) {
+                errors.add(USER_WITH_ID_TEXT + friendId + NOT_FOUND_TEXT);
+            } else {
+                candidates.add(friendId);
+            }
+        }
+
+        long[] toInsert = candidates.toArray();
+        int[] results = toInsert.length == 0
+                ? new int[0] : friendRepository.insertFriendships(userId, toInsert);
+        LongArrayList inserted = new LongArrayList(toInsert.length);
+        for (int i = 0; i < toInsert.length; i++) {
+            if (results[i] > 0) {
+                inserted.add(toInsert[i]);
+            } else {
+                errors.add("Users are already friends: " + toInsert[i]);
+            }
+        }
 
-        user.addFriend(friend);
-        userRepository.save(user);
+        long[] added = inserted.toArray();
+        if (added.length > 0) {
+            friendRepository.adjustFriendsCount(Arrays.stream(added).boxed().toList(), 1);
+        }
+        TransactionUtils.afterCommit(() -> {
+            for (long friendId : added) {
+                friendGraph.addFriendship(userId, friendId);
+            }
+            invalidateRecommendations(userId, added);
+        });
+
+        return BulkResponse.builder()
+                .successCount(added.length)
+                .failCount(errors.size())
+                .errors(errors)
+                .build();
     }
 
     public void removeFriend(Long userId, Long friendId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException(USER_WITH_ID_TEXT
-                        + userId + NOT_FOUND_TEXT));
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new EntityNotFoundException(USER_WITH_ID_TEXT
-                        + friendId + NOT_FOUND_TEXT));
-
-        if (!friendRepository.existsFriendship(userId, friendId)) {
+        requireUserExists(userId);
+        requireUserExists(friendId);
+
+        if (friendRepository.deleteFriendship(userId, friendId) == 0) {
             throw new IllegalStateException("Users are not friends");
         }
+        friendRepository.adjustFriendsCount(List.of(friendId), -1);
+
+        TransactionUtils.afterCommit(() -> {
+            friendGraph.removeFriendship(userId, friendId);
+            invalidateRecommendations(userId, friendId);
+        });
+    }
+
+    // Вызывается при удалении пользователя в его транзакции: без этого рёбра удалённого
+    // пользователя оставались бы в графе, а через снимок — и после перезапуска
+    public void removeAllFriendships(Long userId) {
+        long[] connections = friendGraph.getConnectionIds(userId);
+        friendRepository.deleteAllFriendships(userId);
+
+        TransactionUtils.afterCommit(() -> {
+            friendGraph.removeUser(userId);
+            invalidateRecommendations(userId, connections);
+        });
+    }
+
+    private void requireUserExists(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException(USER_WITH_ID_TEXT + userId + NOT_FOUND_TEXT);
+        }
+    }
 
-        user.removeFriend(friend);
-        userRepository.save(user);
+    // Ребро меняет второй круг у обоих пользователей и у всех их связей
+    private void invalidateRecommendations(long userId, long... friendIds) {
+        recommendationCache.invalidate(userId);
+        recommendationCache.invalidateAll(friendGraph.getConnectionIds(userId));
+        for (long friendId : friendIds) {
+            recommendationCache.invalidate(friendId);
+            recommendationCache.invalidateAll(friendGraph.getConnectionIds(friendId));
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllFriends(Long userId) {
-        return friendRepository.findFriendsOfUser(userId);
+        long[] friendIds = friendGraph.getFriendOfIds(userId);
+        if (friendIds.length == 0) {
+            return List.of();
+        }
+        return userRepository.findAllById(Arrays.stream(friendIds).boxed().toList());
+    }
+
+    // Страница друзей по курсору: следующая начинается после последнего отданного id
+    @Transactional(readOnly = true)
+    public FriendPageDto getFriendsPage(Long userId, Long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // Лишняя строка показывает, есть ли следующая страница, без отдельного COUNT
+        List<FriendSummaryDto> rows = friendRepository.findFriendPage(userId,
+                afterId == null ? 0L : afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return FriendPageDto.builder().items(rows).build();
+        }
+        List<FriendSummaryDto> items = rows.subList(0, limit);
+        return FriendPageDto.builder()
+                .items(new ArrayList<>(items))
+                .nextCursor(items.get(limit - 1).getId())
+                .build();
     }
 
+    @Transactional(readOnly = true)
+    public int countFriends(Long userId) {
+        return friendRepository.findFriendsCount(userId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        USER_WITH_ID_TEXT + userId + NOT_FOUND_TEXT));
+    }
+
+    // friendId — друг userId в том же смысле, что и в getAllFriends: он добавил userId.
+    // Ответ целиком из графа в памяти, соединение с БД не требуется
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean checkFriendship(Long userId, Long friendId) {
-        return friendRepository.existsFriendship(userId, friendId);
+        return friendGraph.hasFriend(friendId, userId);
+    }
+
+    // Общие друзья — пересечение двух отсортированных массивов связей слиянием
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public MutualFriendsDto getMutualFriends(Long userId, Long otherId, int offset, int limit) {
+        if (offset < 0 || limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Offset must be non-negative and limit must be"
+                    + " between 0 and " + MAX_PAGE_SIZE);
+        }
+
+        long[] userConnections = friendGraph.getConnectionIds(userId);
+        long[] otherConnections = friendGraph.getConnectionIds(otherId);
+
+        MutualFriendsDto.MutualFriendsDtoBuilder result = MutualFriendsDto.builder()
+                .userId(userId)
+                .otherId(otherId)
+                .count(SortedLongArrays.intersectionSize(userConnections, otherConnections));
+        if (limit > 0) {
+            long[] page = SortedLongArrays.intersection(userConnections, otherConnections,
+                    offset, limit);
+            result.friendIds(Arrays.stream(page).boxed().toList());
+        }
+        return result.build();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<MutualFriendsDto> countMutualFriends(List<FriendPairDto> pairs) {
+        if (pairs == null || pairs.isEmpty()) {
+            throw new IllegalArgumentException("Pairs list must not be empty");
+        }
+        if (pairs.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many pairs, maximum is " + MAX_BATCH_SIZE);
+        }
+
+        // Связи каждого пользователя достаются из графа один раз на весь пакет
+        Map<Long, long[]> connections = new HashMap<>();
+        return pairs.stream()
+                .map(pair -> {
+                    if (pair == null || pair.getUserId() == null || pair.getOtherId() == null) {
+                        throw new IllegalArgumentException("Pair must contain both user ids");
+                    }
+                    long[] userConnections = connections.computeIfAbsent(pair.getUserId(),
+                            friendGraph::getConnectionIds);
+                    long[] otherConnections = connections.computeIfAbsent(pair.getOtherId(),
+                            friendGraph::getConnectionIds);
+                    return MutualFriendsDto.builder()
+                            .userId(pair.getUserId())
+                            .otherId(pair.getOtherId())
+                            .count(SortedLongArrays.intersectionSize(userConnections,
+                                    otherConnections))
+                            .build();
+                })
+                .toList();
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,23 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestPopularityCache;
 import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.InterestPopularityDto;
 import com.kirill.meetyou.model.Interest;
 import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.InterestRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.TransactionUtils;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -22,10 +31,12 @@ public class InterestService {
     private static final String INTEREST_NOT_FOUND = "Интерес не найден";
     private static final String INTEREST_ADDED = "Интерес '%s' добавлен пользователю %d";
     private static final String INTEREST_REMOVED = "Интерес '%s' удален у пользователя %d";
+    private static final int MAX_TOP_LIMIT = 100;
 
     private final UserRepository userRepository;
     private final InterestRepository interestRepository;
     private final UserCache userCache;
+    private final InterestPopularityCache popularityCache;
 
     @Transactional
     public void addInterestToUser(Long userId, String interestType) {
@@ -46,6 +57,9 @@ public class InterestService {
         user.getInterests().add(interest);
         User updatedUser = userRepository.save(user);
         userCache.put(userId, updatedUser);
+        // Откаченное добавление не должно сдвигать счётчик популярности
+        String addedType = interest.getInterestType();
+        TransactionUtils.afterCommit(() -> popularityCache.increment(addedType));
 
         log.info(String.format(INTEREST_ADDED, interestType, userId));
     }
@@ -67,6 +81,8 @@ public class InterestService {
         user.getInterests().remove(interest);
         User updatedUser = userRepository.save(user);
         userCache.put(userId, updatedUser);
+        String removedType = interest.getInterestType();
+        TransactionUtils.afterCommit(() -> popularityCache.decrement(removedType));
 
         log.info(String.format(INTEREST_REMOVED, interestName, userId));
     }
@@ -77,6 +93,27 @@ public class InterestService {
         return getUserById(userId).getInterests();
     }
 
+    public List<InterestPopularityDto> getTopInterests(int limit) {
+        if (limit <= 0 || limit > MAX_TOP_LIMIT) {
+            log.warn("Некорректный размер топа интересов: {}", limit);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Размер топа должен быть от 1 до " + MAX_TOP_LIMIT);
+        }
+        return popularityCache.getTop(limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.interests.popularity.reconcile-interval-ms:300000}",
+            fixedDelayString = "${app.interests.popularity.reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public void reconcilePopularity() {
+        Map<String, Long> actualCounts = interestRepository.countUsersPerInterest().stream()
+                .collect(Collectors.toMap(InterestPopularityDto::getInterestType,
+                        InterestPopularityDto::getUsersCount));
+        popularityCache.reconcile(actualCounts);
+        log.debug("Счётчики популярности сверены с БД: {} интересов", actualCounts.size());
+    }
+
     private User getUserById(Long userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> {
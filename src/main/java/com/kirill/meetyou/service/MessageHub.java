@@ -0,0 +1,67 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+// Внутрипроцессная рассылка новых сообщений подписчикам пользователя (SSE, long-poll).
+// publish вызывается после коммита и не должен блокироваться: слушатели только
+// ставят событие в свою очередь
+@Slf4j
+@Component
+public class MessageHub {
+    private final Map<Long, Set<Listener>> listeners = new ConcurrentHashMap<>();
+
+    public void subscribe(long userId, Listener listener) {
+        subscribe(userId, listener, Integer.MAX_VALUE);
+    }
+
+    // Проверка лимита и добавление выполняются внутри compute под блокировкой ключа,
+    // поэтому параллельные подписки одного пользователя не превысят maxPerUser.
+    // false — лимит исчерпан, слушатель не добавлен
+    public boolean subscribe(long userId, Listener listener, int maxPerUser) {
+        boolean[] added = new boolean[1];
+        listeners.compute(userId, (id, set) -> {
+            Set<Listener> result = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (result.size() < maxPerUser) {
+                added[0] = result.add(listener);
+            }
+            return result.isEmpty() ? null : result;
+        });
+        return added[0];
+    }
+
+    public void unsubscribe(long userId, Listener listener) {
+        listeners.computeIfPresent(userId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void publish(long userId, MessageDto message) {
+        Set<Listener> userListeners = listeners.get(userId);
+        if (userListeners == null) {
+            return;
+        }
+        for (Listener listener : userListeners) {
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Подписчик пользователя {} не принял сообщение #{}: {}",
+                        userId, message.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public int countListeners(long userId) {
+        Set<Listener> userListeners = listeners.get(userId);
+        return userListeners == null ? 0 : userListeners.size();
+    }
+
+    public interface Listener {
+        void onMessage(MessageDto message);
+    }
+}
@@ -0,0 +1,260 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.model.Message;
+import com.kirill.meetyou.model.MessageBody;
+import com.kirill.meetyou.repository.ConversationSummaryRepository;
+import com.kirill.meetyou.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+// Отложенная запись сообщений (app.messages.write-behind.enabled). Проверенное сообщение
+// получает id из заранее выделенного блока последовательности, кладётся в ограниченную
+// очередь и сразу подтверждается; фоновый поток пишет очередь пачками JDBC по размеру
+// или по времени. Переполненная очередь — отказ 503, клиент повторяет позже.
+//
+// Надёжность: подтверждённое сообщение живёт только в памяти, пока пачка не закоммичена.
+// При падении процесса теряется не больше содержимого очереди (queue-capacity) и примерно
+// flush-interval-ms последних сообщений; штатная остановка дописывает очередь до конца.
+// Строку, которую не удалось вставить и поодиночке (например, пользователь удалён), пишем
+// в лог и отбрасываем. Порядок id совпадает с порядком записи только в одном экземпляре
+// приложения — с несколькими экземплярами режим не включать
+@Slf4j
+@Service
+public class MessageIngestionService {
+    private static final String INSERT_MESSAGE_SQL = "INSERT INTO messages"
+            + " (id, content, preview, timestamp, sender_id, receiver_id, is_read, conversation_id)"
+            + " VALUES (?, ?, ?, ?, ?, ?, FALSE, ?)";
+    private static final String ALLOCATE_IDS_SQL = "SELECT nextval(pg_get_serial_sequence("
+            + "'messages', 'id')) FROM generate_series(1, ?)";
+    private static final int ID_BLOCK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<PendingMessage> queue;
+    // Выделение id и постановка в очередь под одним замком: порядок в очереди — порядок id
+    private final Object submitLock = new Object();
+    private long[] idBlock = new long[0];
+    private int idBlockPosition;
+    private boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public MessageIngestionService(
+            JdbcTemplate jdbcTemplate,
+            ConversationSummaryRepository conversationSummaryRepository,
+            MessageRepository messageRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.messages.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.messages.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.messages.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.messages.write-behind.flush-interval-ms:50}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.conversationSummaryRepository = conversationSummaryRepository;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.accepting = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "MessageWriter");
+        writer.start();
+        log.info("📝 Отложенная запись сообщений включена: очередь {}, пачка {}, интервал {} мс",
+                queue.remainingCapacity(), batchSize, flushIntervalMs);
+    }
+
+    // Поток записи сам дописывает очередь после остановки; остаток без потока — здесь
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (submitLock) {
+            accepting = false;
+        }
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+        flushPending();
+    }
+
+    // Сообщение уже проверено вызывающим; onStored вызывается после коммита пачки с ним
+    public MessageDto submit(Long senderId, Long receiverId, String content,
+                             Consumer<MessageDto> onStored) {
+        synchronized (submitLock) {
+            // Приложение останавливается: это не ошибка клиента, отправку можно повторить
+            if (!accepting) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Сервис останавливается, повторите отправку позже");
+            }
+            // Кладёт в очередь только этот блок, поэтому свободное место не исчезнет до add
+            if (queue.remainingCapacity() == 0) {
+                log.warn("⚠️ Очередь записи сообщений переполнена, сообщение от {} отклонено",
+                        senderId);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Сервис перегружен, повторите отправку позже");
+            }
+            MessageDto dto = MessageDto.builder()
+                    .id(nextId())
+                    .content(content)
+                    .timestamp(LocalDateTime.now())
+                    .senderId(senderId)
+                    .receiverId(receiverId)
+                    .build();
+            queue.add(new PendingMessage(dto, onStored));
+            return dto;
+        }
+    }
+
+    int countPending() {
+        return queue.size();
+    }
+
+    // Пишет всё, что сейчас в очереди; используется при остановке и в тестах
+    void flushPending() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private long nextId() {
+        if (idBlockPosition == idBlock.length) {
+            idBlock = jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, ID_BLOCK_SIZE)
+                    .stream().mapToLong(Long::longValue).toArray();
+            idBlockPosition = 0;
+        }
+        return idBlock[idBlockPosition++];
+    }
+
+    // Пачка закрывается по размеру или через flush-interval-ms после первого сообщения
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("⚠️ Поток записи сообщений прерван, в очереди {}", queue.size());
+                return;
+            } catch (RuntimeException e) {
+                log.error("❌ Ошибка потока записи сообщений", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingMessage> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL,
+                        batch.stream().map(PendingMessage::toRow).toList());
+                List<MessageDto> messages = batch.stream().map(pending -> pending.dto).toList();
+                conversationSummaryRepository.recordMessages(messages);
+                messageRepository.indexForSearch(messages);
+            });
+            log.debug("💾 Записана пачка из {} сообщений", batch.size());
+            batch.forEach(PendingMessage::stored);
+        } catch (DataAccessException e) {
+            // Одна плохая строка откатывает всю пачку — остальные пишем поодиночке
+            log.warn("⚠️ Пачка из {} сообщений не записана, пишем по одному: {}",
+                    batch.size(), e.getMessage());
+            for (PendingMessage pending : batch) {
+                writeOne(pending);
+            }
+        }
+    }
+
+    private void writeOne(PendingMessage pending) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(INSERT_MESSAGE_SQL, pending.toRow());
+                conversationSummaryRepository.recordMessages(List.of(pending.dto));
+                messageRepository.indexForSearch(List.of(pending.dto));
+            });
+            pending.stored();
+        } catch (DataAccessException e) {
+            log.error("❌ Сообщение #{} от {} к {} потеряно: {}", pending.dto.getId(),
+                    pending.dto.getSenderId(), pending.dto.getReceiverId(), e.getMessage());
+        }
+    }
+
+    private static final class PendingMessage {
+        private final MessageDto dto;
+        private final Consumer<MessageDto> onStored;
+
+        PendingMessage(MessageDto dto, Consumer<MessageDto> onStored) {
+            this.dto = dto;
+            this.onStored = onStored;
+        }
+
+        // Текст пишется в том же формате, что и через конвертер сущности Message
+        Object[] toRow() {
+            MessageBody body = MessageBody.of(dto.getContent());
+            return new Object[] {dto.getId(), body.stored(), body.preview(),
+                    Timestamp.valueOf(dto.getTimestamp()), dto.getSenderId(), dto.getReceiverId(),
+                    Message.conversationIdOf(dto.getSenderId(), dto.getReceiverId())};
+        }
+
+        void stored() {
+            try {
+                onStored.accept(dto);
+            } catch (RuntimeException e) {
+                log.error("❌ Ошибка обработки записанного сообщения #{}", dto.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.exception.ResourceNotFoundException;
+import com.kirill.meetyou.repository.UserRepository;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+
+// Long-poll для клиентов без SSE: если новых сообщений нет, запрос паркуется в DeferredResult
+// и освобождает поток контейнера до сигнала MessageHub или истечения таймаута
+@Slf4j
+@Service
+public class MessageLongPollService {
+    private static final int MAX_MESSAGES = 100;
+    private static final long MIN_TIMEOUT_MS = 1_000;
+    private static final long MAX_TIMEOUT_MS = 60_000;
+
+    private final MessageService messageService;
+    private final MessageHub messageHub;
+    private final UserRepository userRepository;
+    private final int maxWaitingPerUser;
+
+    public MessageLongPollService(
+            MessageService messageService,
+            MessageHub messageHub,
+            UserRepository userRepository,
+            @Value("${app.messages.updates.max-waiting-per-user:10}") int maxWaitingPerUser) {
+        this.messageService = messageService;
+        this.messageHub = messageHub;
+        this.userRepository = userRepository;
+        this.maxWaitingPerUser = maxWaitingPerUser;
+    }
+
+    public DeferredResult<List<MessageDto>> waitForMessages(Long userId, long sinceId,
+                                                            long timeoutMs) {
+        if (timeoutMs < MIN_TIMEOUT_MS || timeoutMs > MAX_TIMEOUT_MS) {
+            throw new IllegalArgumentException("Таймаут должен быть от " + MIN_TIMEOUT_MS
+                    + " до " + MAX_TIMEOUT_MS + " мс");
+        }
+        if (sinceId < 0) {
+            throw new IllegalArgumentException("since не может быть отрицательным");
+        }
+        if (!userRepository.existsById(userId)) {
+            log.error("❌ Пользователь не найден: ID {}", userId);
+            throw new ResourceNotFoundException("Пользователь не найден");
+        }
+        // По таймауту — пустой список: клиент повторяет запрос с тем же since
+        DeferredResult<List<MessageDto>> result = new DeferredResult<>(timeoutMs, List.of());
+        MessageHub.Listener listener = message -> {
+            if (message.getId() > sinceId) {
+                result.setResult(List.of(message));
+            }
+        };
+
+        // Подписка до проверки БД: сообщение, закоммиченное между ними, не потеряется
+        if (!messageHub.subscribe(userId, listener, maxWaitingPerUser)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много ожидающих запросов, максимум " + maxWaitingPerUser);
+        }
+        result.onCompletion(() -> messageHub.unsubscribe(userId, listener));
+
+        // Исключение здесь не вернёт DeferredResult, и onCompletion не сработает:
+        // без явной отписки слушатель навсегда занял бы место в лимите пользователя
+        List<MessageDto> pending;
+        try {
+            pending = messageService.getMessagesSince(userId, sinceId, MAX_MESSAGES);
+        } catch (RuntimeException e) {
+            messageHub.unsubscribe(userId, listener);
+            throw e;
+        }
+        if (!pending.isEmpty()) {
+            result.setResult(pending);
+        }
+        // Результат уже есть — подписку снимаем сразу, не дожидаясь завершения запроса
+        if (result.hasResult()) {
+            messageHub.unsubscribe(userId, listener);
+        }
+        return result;
+    }
+}
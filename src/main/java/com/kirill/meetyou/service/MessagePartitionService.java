@@ -0,0 +1,223 @@
+package com.kirill.meetyou.service;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Помесячные секции таблицы messages (PARTITION BY RANGE (timestamp)).
+// Обычная таблица переносится в секционированную только по явному решению оператора:
+// один запуск с app.messages.partitions.migrate=true; прежняя таблица остаётся копией
+// messages_unpartitioned до ручного удаления. После переноса по расписанию
+// создаются секции на месяцы вперёд, а секции старше срока хранения отсоединяются целиком:
+// архивом (таблица messages_archive_ГГГГ_ММ остаётся в БД) или удалением — без DELETE по строкам.
+// Отметки прочтения, входящие и счётчики непрочитанных на удалённые сообщения не пересчитываются
+@Slf4j
+@Service
+public class MessagePartitionService {
+    private static final String PARTITION_PREFIX = "messages_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile("messages_p(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    // Ключ блокировки переноса: несколько экземпляров приложения стартуют одновременно
+    private static final String MIGRATION_LOCK_SQL = "SELECT pg_advisory_xact_lock(7310455120)";
+    private static final String TABLE_KIND_SQL = "SELECT relkind FROM pg_class"
+            + " WHERE oid = to_regclass('messages')";
+    private static final String LIST_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i"
+            + " JOIN pg_class c ON c.oid = i.inhrelid"
+            + " WHERE i.inhparent = to_regclass('messages') ORDER BY c.relname";
+
+    // Имена индексов уникальны в схеме: индексы копии переименовываются, чтобы новая таблица
+    // и повторный прогон schema.sql могли создать свои с прежними именами
+    private static final String RENAME_BACKUP_INDEXES_SQL = "SELECT format("
+            + "'ALTER INDEX %I RENAME TO %I', c.relname, left(c.relname, 56) || '_backup')"
+            + " FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid"
+            + " WHERE i.indrelid = to_regclass('messages_unpartitioned')";
+    // Внешние ключи копии на users мешали бы удалять пользователей
+    private static final String DROP_BACKUP_FOREIGN_KEYS_SQL = "SELECT format("
+            + "'ALTER TABLE messages_unpartitioned DROP CONSTRAINT %I', conname)"
+            + " FROM pg_constraint"
+            + " WHERE conrelid = to_regclass('messages_unpartitioned') AND contype = 'f'";
+
+    private static final String PURGE_SEARCH_SQL = "DELETE FROM message_search WHERE sent_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final boolean archive;
+    private final boolean migrationEnabled;
+    private volatile boolean partitioned;
+
+    public MessagePartitionService(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.messages.partitions.premake-months:2}") int premakeMonths,
+            @Value("${app.messages.retention.months:0}") int retentionMonths,
+            @Value("${app.messages.retention.archive:true}") boolean archive,
+            @Value("${app.messages.partitions.migrate:false}") boolean migrationEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.archive = archive;
+        this.migrationEnabled = migrationEnabled;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        // Вид таблицы проверяется под блокировкой в той же транзакции, что и перенос:
+        // второй экземпляр дождётся коммита и увидит уже секционированную таблицу
+        Boolean migrated = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(MIGRATION_LOCK_SQL);
+            String kind = jdbcTemplate.queryForObject(TABLE_KIND_SQL, String.class);
+            partitioned = !"r".equals(kind);
+            if (partitioned || !migrationEnabled) {
+                return false;
+            }
+            migrate(LocalDate.now());
+            partitioned = true;
+            return true;
+        });
+        if (!partitioned) {
+            log.warn("⚠️ Таблица messages не секционирована; перенос выполняется одним запуском"
+                    + " с app.messages.partitions.migrate=true");
+            return;
+        }
+        if (Boolean.TRUE.equals(migrated)) {
+            // Индексы создаёт повторный прогон schema.sql: его DDL идемпотентен
+            // и уже описывает все индексы messages
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        }
+        maintain();
+    }
+
+    @Scheduled(initialDelayString = "${app.messages.partitions.maintenance-interval-ms:3600000}",
+            fixedDelayString = "${app.messages.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!partitioned) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        ensurePartitions(YearMonth.from(today), YearMonth.from(today).plusMonths(premakeMonths));
+        if (retentionMonths > 0) {
+            purgeExpired(today);
+        }
+    }
+
+    // Секция не создастся, если в messages_default уже есть строки её месяца
+    // (приложение не работало дольше premake-months); такие строки остаются в default
+    void ensurePartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                        + " PARTITION OF messages FOR VALUES FROM ('" + month.atDay(1)
+                        + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            } catch (DataAccessException e) {
+                log.error("❌ Не удалось создать секцию сообщений за {}: {}", month, e.getMessage());
+            }
+        }
+    }
+
+    // Секция уходит, когда её последний день старше retentionMonths полных месяцев
+    void purgeExpired(LocalDate today) {
+        YearMonth oldestKept = YearMonth.from(today).minusMonths(retentionMonths);
+        for (String partition : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class)) {
+            YearMonth month = monthOf(partition);
+            if (month == null || !month.isBefore(oldestKept)) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE messages DETACH PARTITION " + partition);
+                jdbcTemplate.execute(archive
+                        ? "ALTER TABLE " + partition + " RENAME TO messages_archive_"
+                                + month.format(PARTITION_SUFFIX)
+                        : "DROP TABLE " + partition);
+                // Строки поиска по этим сообщениям больше ни к чему не присоединятся
+                jdbcTemplate.update(PURGE_SEARCH_SQL,
+                        Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+            });
+            log.info("🗄️ Секция сообщений за {} {}", month, archive ? "отправлена в архив" : "удалена");
+        }
+    }
+
+    // Перенос обычной таблицы: новая секционированная таблица с теми же колонками, секции на
+    // весь диапазон данных, копирование, перевод последовательности id. Прежняя таблица
+    // остаётся копией messages_unpartitioned без внешних ключей
+    void migrate(LocalDate today) {
+        long startedAt = System.currentTimeMillis();
+        jdbcTemplate.execute("ALTER TABLE messages RENAME TO messages_unpartitioned");
+        jdbcTemplate.queryForList(RENAME_BACKUP_INDEXES_SQL, String.class)
+                .forEach(jdbcTemplate::execute);
+        jdbcTemplate.queryForList(DROP_BACKUP_FOREIGN_KEYS_SQL, String.class)
+                .forEach(jdbcTemplate::execute);
+        String oldSequence = jdbcTemplate.queryForObject(
+                "SELECT pg_get_serial_sequence('messages_unpartitioned', 'id')", String.class);
+        // Ключ секционированной таблицы обязан включать колонку секционирования, поэтому
+        // PRIMARY KEY (id, timestamp) сам по себе не запрещает одинаковый id с разным временем.
+        // Уникальность id держится на единственной последовательности: JPA (IDENTITY) и
+        // отложенная запись (nextval в MessageIngestionService) берут id только из неё,
+        // а ниже последовательность переводится за максимальный скопированный id
+        jdbcTemplate.execute("CREATE TABLE messages (LIKE messages_unpartitioned"
+                + " INCLUDING DEFAULTS INCLUDING IDENTITY INCLUDING CONSTRAINTS,"
+                + " PRIMARY KEY (id, timestamp)) PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("CREATE TABLE messages_default PARTITION OF messages DEFAULT");
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM messages_unpartitioned", Timestamp.class);
+        YearMonth first = oldest == null
+                ? YearMonth.from(today) : YearMonth.from(oldest.toLocalDateTime());
+        ensurePartitions(first, YearMonth.from(today).plusMonths(premakeMonths));
+        int copied = jdbcTemplate.update("INSERT INTO messages OVERRIDING SYSTEM VALUE"
+                + " SELECT * FROM messages_unpartitioned");
+
+        // serial: default уже ссылается на старую последовательность, её надо перепривязать;
+        // identity: у новой колонки своя последовательность, её надо продвинуть
+        String newSequence = jdbcTemplate.queryForObject(
+                "SELECT pg_get_serial_sequence('messages', 'id')", String.class);
+        if (newSequence == null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + oldSequence + " OWNED BY messages.id");
+        } else {
+            jdbcTemplate.queryForObject("SELECT setval('" + newSequence + "', GREATEST("
+                    + "(SELECT last_value FROM " + oldSequence + "),"
+                    + " (SELECT COALESCE(MAX(id), 1) FROM messages)))", Long.class);
+        }
+
+        jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT fk_messages_sender"
+                + " FOREIGN KEY (sender_id) REFERENCES users (id)");
+        jdbcTemplate.execute("ALTER TABLE messages ADD CONSTRAINT fk_messages_receiver"
+                + " FOREIGN KEY (receiver_id) REFERENCES users (id)");
+        log.info("🗄️ Таблица messages разбита на помесячные секции: {} сообщений за {} мс;"
+                + " после проверки удалите копию: DROP TABLE messages_unpartitioned",
+                copied, System.currentTimeMillis() - startedAt);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    // null для секций не по месяцам (messages_default)
+    static YearMonth monthOf(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+}
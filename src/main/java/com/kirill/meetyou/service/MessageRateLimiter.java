@@ -0,0 +1,104 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.RateLimitStatsDto;
+import com.kirill.meetyou.exception.TooManyRequestsException;
+import com.kirill.meetyou.utils.TokenBucketLimiter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Ограничение частоты запросов к сообщениям по отправителю. Вызывается из MessageController
+// до сервиса, то есть вне транзакции и до любых обращений к БД.
+// Лимиты задаются для каждой точки входа: app.messages.rate-limit.<endpoint>.capacity
+// (запросов подряд) и .refill-per-minute (скорость восполнения)
+@Slf4j
+@Service
+public class MessageRateLimiter {
+    private final Map<Endpoint, Limit> limits = new EnumMap<>(Endpoint.class);
+
+    public MessageRateLimiter(Environment environment) {
+        int maxSenders = environment.getProperty("app.messages.rate-limit.max-senders",
+                Integer.class, 100_000);
+        for (Endpoint endpoint : Endpoint.values()) {
+            String prefix = "app.messages.rate-limit." + endpoint.key + ".";
+            int capacity = environment.getProperty(prefix + "capacity", Integer.class,
+                    endpoint.defaultCapacity);
+            int refillPerMinute = environment.getProperty(prefix + "refill-per-minute",
+                    Integer.class, endpoint.defaultRefillPerMinute);
+            limits.put(endpoint, new Limit(
+                    new TokenBucketLimiter(capacity, refillPerMinute, maxSenders)));
+        }
+    }
+
+    public void check(Endpoint endpoint, Long senderId) {
+        Limit limit = limits.get(endpoint);
+        long waitNanos = limit.buckets.tryAcquire(senderId);
+        if (waitNanos == 0) {
+            limit.allowed.increment();
+            return;
+        }
+        limit.throttled.increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                / TimeUnit.SECONDS.toNanos(1));
+        log.warn("🚫 Превышен лимит {} для пользователя {}, повтор через {} с",
+                endpoint.key, senderId, retryAfter);
+        throw new TooManyRequestsException("Слишком много запросов, повторите через "
+                + retryAfter + " с", retryAfter);
+    }
+
+    public List<RateLimitStatsDto> getStats() {
+        return Arrays.stream(Endpoint.values())
+                .map(endpoint -> {
+                    Limit limit = limits.get(endpoint);
+                    return RateLimitStatsDto.builder()
+                            .endpoint(endpoint.key)
+                            .allowed(limit.allowed.sum())
+                            .throttled(limit.throttled.sum())
+                            .trackedSenders(limit.buckets.size())
+                            .overflowed(limit.buckets.overflowed())
+                            .build();
+                })
+                .toList();
+    }
+
+    // Полные корзины ничего не помнят — их можно удалить
+    @Scheduled(fixedDelayString = "${app.messages.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        for (Limit limit : limits.values()) {
+            limit.buckets.evictIdle();
+        }
+    }
+
+    public enum Endpoint {
+        SEND("send", 20, 60),
+        MARK_READ("mark-read", 30, 120),
+        SEARCH("search", 10, 30);
+
+        private final String key;
+        private final int defaultCapacity;
+        private final int defaultRefillPerMinute;
+
+        Endpoint(String key, int defaultCapacity, int defaultRefillPerMinute) {
+            this.key = key;
+            this.defaultCapacity = defaultCapacity;
+            this.defaultRefillPerMinute = defaultRefillPerMinute;
+        }
+    }
+
+    private static final class Limit {
+        private final TokenBucketLimiter buckets;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        Limit(TokenBucketLimiter buckets) {
+            this.buckets = buckets;
+        }
+    }
+}
@@ -1,18 +1,41 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.UnreadCounterCache;
+import com.kirill.meetyou.dto.ConversationPageDto;
+import com.kirill.meetyou.dto.InboxEntryDto;
+import com.kirill.meetyou.dto.InboxPageDto;
 import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.dto.MessageSearchPageDto;
 import com.kirill.meetyou.exception.ResourceNotFoundException;
+import com.kirill.meetyou.model.ConversationRead;
+import com.kirill.meetyou.model.ConversationSummary;
 import com.kirill.meetyou.model.Message;
 import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.ConversationReadRepository;
+import com.kirill.meetyou.repository.ConversationSummaryRepository;
 import com.kirill.meetyou.repository.MessageRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.LongLongHashMap;
+import com.kirill.meetyou.utils.TransactionUtils;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @Service
@@ -22,9 +45,20 @@ public class MessageService {
     private static final String USER_NOT_FOUND_LOG = "❌ Пользователь не найден: ID {}";
     private static final String INTERLOCUTOR_NOT_FOUND_LOG = "❌ Собеседник не найден: ID {}";
     private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int MAX_SEARCH_OFFSET = 1000;
+    // Граница поиска по времени, пока отметки прочтения нет: раньше сообщений не бывает
+    private static final LocalDateTime NO_WATERMARK_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ConversationReadRepository conversationReadRepository;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final UnreadCounterCache unreadCounters;
+    private final MessageHub messageHub;
+    private final MessageIngestionService messageIngestionService;
     private static final DateTimeFormatter TIMESTAMP_FORMATTER =
             DateTimeFormatter.ofPattern(TIMESTAMP_PATTERN);
 
@@ -36,6 +70,13 @@ public class MessageService {
                 });
     }
 
+    private void requireUserExists(Long userId, String errorLog) {
+        if (!userRepository.existsById(userId)) {
+            log.error(errorLog, userId);
+            throw new ResourceNotFoundException(USER_NOT_FOUND_MSG);
+        }
+    }
+
     @Transactional
     public MessageDto sendMessage(Long senderId, Long receiverId, String content) {
         log.info("🔄 Попытка отправки сообщения от {} к {}", senderId, receiverId);
@@ -46,13 +87,13 @@ public class MessageService {
             throw new IllegalArgumentException("Текст сообщения не может быть пустым");
         }
 
+        if (messageIngestionService.isEnabled()) {
+            return submitMessage(senderId, receiverId, content);
+        }
+
         User sender = findUserOrThrow(senderId, USER_NOT_FOUND_LOG);
         User receiver = findUserOrThrow(receiverId, USER_NOT_FOUND_LOG);
-
-        if (senderId.equals(receiverId)) {
-            log.warn("⚠️ Попытка самосообщения: {}", senderId);
-            throw new IllegalArgumentException("Нельзя отправить сообщение самому себе");
-        }
+        requireDifferentUsers(senderId, receiverId);
 
         Message message = new Message();
         message.setContent(content);
@@ -61,6 +102,12 @@ public class MessageService {
         message.setTimestamp(LocalDateTime.now());
 
         Message savedMessage = messageRepository.save(message);
+        requireIdIssuedInTime(savedMessage);
+        MessageDto dto = convertToDto(savedMessage, Map.of(), true);
+        conversationSummaryRepository.recordMessages(List.of(dto));
+        messageRepository.indexForSearch(List.of(dto));
+        // Подписчики узнают о сообщении только после коммита, когда его уже видно в БД
+        TransactionUtils.afterCommit(() -> onMessageStored(dto));
 
         log.info("✅ Сообщение #{} успешно отправлено от {} к {} в {}",
                 savedMessage.getId(),
@@ -68,9 +115,54 @@ public class MessageService {
                 receiverId,
                 savedMessage.getTimestamp().format(TIMESTAMP_FORMATTER));
 
-        return convertToDto(savedMessage);
+        return dto;
     }
 
+    // id выдаётся при вставке, уже после выбора времени. Запросы по диапазонам id отсекают
+    // секции по времени с запасом Message.ID_ORDER_SLACK_SECONDS; если вставка задержалась
+    // дольше, сообщение откатывается, иначе его не нашли бы подсчёты непрочитанных
+    private void requireIdIssuedInTime(Message message) {
+        Duration delay = Duration.between(message.getTimestamp(), LocalDateTime.now());
+        if (delay.getSeconds() >= Message.ID_ORDER_SLACK_SECONDS) {
+            log.error("❌ Сообщение #{} вставлено через {} после выбора времени, откат",
+                    message.getId(), delay);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Сервис перегружен, повторите отправку позже");
+        }
+    }
+
+    // Отложенная запись: оба пользователя проверяются одним запросом, сообщение уходит
+    // в очередь и подтверждается сразу, подписчики узнают о нём после записи пачки
+    private MessageDto submitMessage(Long senderId, Long receiverId, String content) {
+        requireDifferentUsers(senderId, receiverId);
+        if (userRepository.findExistingIds(List.of(senderId, receiverId)).size() < 2) {
+            log.error("❌ Отправитель {} или получатель {} не найден", senderId, receiverId);
+            throw new ResourceNotFoundException(USER_NOT_FOUND_MSG);
+        }
+
+        MessageDto dto = messageIngestionService.submit(senderId, receiverId, content,
+                this::onMessageStored);
+        log.info("✅ Сообщение #{} от {} к {} принято в очередь записи",
+                dto.getId(), senderId, receiverId);
+        return dto;
+    }
+
+    private void requireDifferentUsers(Long senderId, Long receiverId) {
+        if (senderId.equals(receiverId)) {
+            log.warn("⚠️ Попытка самосообщения: {}", senderId);
+            throw new IllegalArgumentException("Нельзя отправить сообщение самому себе");
+        }
+    }
+
+    private void onMessageStored(MessageDto dto) {
+        unreadCounters.add(dto.getReceiverId(), 1);
+        messageHub.publish(dto.getReceiverId(), dto);
+        messageHub.publish(dto.getSenderId(), dto);
+    }
+
+    // Устаревший вариант без курсора: отдаёт не всю историю, а последние MAX_PAGE_SIZE
+    // сообщений от старых к новым. Длинную переписку листать через getConversationPage
+    @Deprecated
     @Transactional(readOnly = true)
     public List<MessageDto> getConversation(Long user1Id, Long user2Id) {
         log.info("📖 Запрос переписки между {} и {}", user1Id, user2Id);
@@ -78,15 +170,76 @@ public class MessageService {
         User user1 = findUserOrThrow(user1Id, USER_NOT_FOUND_LOG);
         User user2 = findUserOrThrow(user2Id, USER_NOT_FOUND_LOG);
 
-        List<MessageDto> conversation = messageRepository.findConversation(user1, user2)
-                .stream()
-                .map(this::convertToDto)
+        String conversationId = Message.conversationIdOf(user1.getId(), user2.getId());
+        Map<Long, Long> watermarks = findWatermarks(conversationId);
+        List<Message> latest = new ArrayList<>(
+                messageRepository.findConversationLatest(conversationId, MAX_PAGE_SIZE));
+        Collections.reverse(latest);
+        List<MessageDto> conversation = latest.stream()
+                .map(message -> convertToDto(message, watermarks))
                 .toList();
 
         logConversationStats(conversation);
         return conversation;
     }
 
+    // Страница истории от новых к старым: без курсора — последние сообщения,
+    // beforeId — более старые, afterId — более новые, чем указанное сообщение
+    @Transactional(readOnly = true)
+    public ConversationPageDto getConversationPage(Long user1Id, Long user2Id,
+                                                   Long beforeId, Long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (beforeId != null && afterId != null) {
+            throw new IllegalArgumentException("Укажите только beforeId или только afterId");
+        }
+        log.debug("📖 Страница переписки {} и {}: before={}, after={}, limit={}",
+                user1Id, user2Id, beforeId, afterId, limit);
+
+        requireUserExists(user1Id, USER_NOT_FOUND_LOG);
+        requireUserExists(user2Id, INTERLOCUTOR_NOT_FOUND_LOG);
+
+        // Лишняя строка показывает, есть ли продолжение, без отдельного COUNT
+        String conversationId = Message.conversationIdOf(user1Id, user2Id);
+        List<Message> rows;
+        if (afterId != null) {
+            rows = messageRepository.findConversationAfter(conversationId,
+                    findCursorTime(conversationId, afterId), afterId, limit + 1);
+        } else if (beforeId != null) {
+            rows = messageRepository.findConversationBefore(conversationId,
+                    findCursorTime(conversationId, beforeId), beforeId, limit + 1);
+        } else {
+            rows = messageRepository.findConversationLatest(conversationId, limit + 1);
+        }
+        boolean hasMore = rows.size() > limit;
+        List<Message> page = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        if (afterId != null) {
+            Collections.reverse(page);
+        }
+
+        Map<Long, Long> watermarks = findWatermarks(conversationId);
+        List<MessageDto> messages = page.stream()
+                .map(message -> convertToDto(message, watermarks))
+                .toList();
+        return ConversationPageDto.builder()
+                .messages(messages)
+                .newestId(messages.isEmpty() ? null : messages.get(0).getId())
+                .oldestId(messages.isEmpty() ? null : messages.get(messages.size() - 1).getId())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Курсор — сообщение той же переписки; иначе страница строилась бы от чужого времени
+    private LocalDateTime findCursorTime(String conversationId, Long messageId) {
+        return messageRepository.findConversationMessageTime(conversationId, messageId)
+                .orElseThrow(() -> {
+                    log.error("❌ Курсор {} не найден в переписке {}", messageId, conversationId);
+                    return new ResourceNotFoundException("Сообщение не найдено");
+                });
+    }
+
     private void logConversationStats(List<MessageDto> conversation) {
         log.info("📊 Найдено {} сообщений в переписке", conversation.size());
         if (!conversation.isEmpty()) {
@@ -95,51 +248,212 @@ public class MessageService {
         }
     }
 
+    // Одно сообщение с полным текстом; чужое сообщение не отличается от несуществующего
+    @Transactional(readOnly = true)
+    public MessageDto getMessage(Long userId, Long messageId) {
+        Message message = messageRepository.findUserMessage(userId, messageId)
+                .orElseThrow(() -> {
+                    log.error("❌ Сообщение {} не найдено для пользователя {}", messageId, userId);
+                    return new ResourceNotFoundException("Сообщение не найдено");
+                });
+        return convertToDto(message, findWatermarks(message.getConversationId()), true);
+    }
+
+    // Прочтение сдвигает отметку пользователя в переписке одной строкой conversation_reads,
+    // сами сообщения не переписываются. Возвращает число впервые прочитанных сообщений
     @Transactional
-    public void markMessagesAsRead(Long userId, Long interlocutorId) {
+    public int markMessagesAsRead(Long userId, Long interlocutorId) {
         log.info("👁️ Пользователь {} помечает сообщения от {} как прочитанные",
                 userId, interlocutorId);
 
-        User user = findUserOrThrow(userId, USER_NOT_FOUND_LOG);
-        User interlocutor = findUserOrThrow(interlocutorId, INTERLOCUTOR_NOT_FOUND_LOG);
+        requireUserExists(userId, USER_NOT_FOUND_LOG);
+        requireUserExists(interlocutorId, INTERLOCUTOR_NOT_FOUND_LOG);
 
-        List<Message> unreadMessages = messageRepository
-                .findByReceiverAndSenderAndIsReadFalse(user, interlocutor);
+        String conversationId = Message.conversationIdOf(userId, interlocutorId);
+        // Отметка без блокировки только ограничивает поиск: она не убывает, и под блокировкой
+        // ниже может оказаться лишь больше, поэтому её время годится и как граница подсчёта
+        Optional<ConversationRead> seenRead = conversationReadRepository
+                .findById(new ConversationRead.Key(userId, conversationId));
+        long seen = seenRead.map(ConversationRead::getLastReadMessageId).orElse(0L);
+        LocalDateTime seenAt = seenRead.map(ConversationRead::getLastReadAt)
+                .orElse(NO_WATERMARK_AT);
+        Message lastReceived = messageRepository
+                .findLastReceived(conversationId, userId, seen, seenAt)
+                .orElse(null);
+        if (lastReceived == null) {
+            log.info("📌 Новых сообщений от {} нет", interlocutorId);
+            return 0;
+        }
+        long lastReceivedId = lastReceived.getId();
 
-        logUnreadMessagesCount(unreadMessages.size());
+        conversationReadRepository.ensureExists(userId, conversationId);
+        long watermark = conversationReadRepository.lockWatermark(userId, conversationId);
+        if (watermark >= lastReceivedId) {
+            log.info("📌 Новых сообщений от {} нет", interlocutorId);
+            return 0;
+        }
 
-        unreadMessages.forEach(message -> {
-            message.setRead(true);
-            log.debug("Сообщение #{} помечено как прочитанное", message.getId());
-        });
+        int newlyRead = (int) messageRepository.countReceivedBetween(conversationId, userId,
+                watermark, lastReceivedId, seenAt);
+        conversationReadRepository.advance(userId, conversationId, lastReceivedId,
+                lastReceived.getTimestamp());
+        conversationSummaryRepository.decrementUnread(userId, conversationId, newlyRead);
+        TransactionUtils.afterCommit(() -> unreadCounters.add(userId, -newlyRead));
 
-        messageRepository.saveAll(unreadMessages);
-        log.info("✅ Все сообщения от {} помечены как прочитанные", interlocutorId);
+        log.info("✅ Помечено прочитанными {} сообщений от {}", newlyRead, interlocutorId);
+        return newlyRead;
     }
 
-    private void logUnreadMessagesCount(int count) {
-        log.info("📌 Найдено {} непрочитанных сообщений", count);
+    // Входящие: переписки по убыванию последнего сообщения, страница продолжается
+    // с lastMessageId последней строки предыдущей
+    @Transactional(readOnly = true)
+    public InboxPageDto getInbox(Long userId, Long beforeId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.debug("📥 Входящие пользователя {}: before={}, limit={}", userId, beforeId, limit);
+        requireUserExists(userId, USER_NOT_FOUND_LOG);
+
+        List<ConversationSummary> rows = beforeId == null
+                ? conversationSummaryRepository.findInbox(userId, limit + 1)
+                : conversationSummaryRepository.findInboxBefore(userId, beforeId, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<InboxEntryDto> items = (hasMore ? rows.subList(0, limit) : rows).stream()
+                .map(summary -> InboxEntryDto.builder()
+                        .interlocutorId(summary.getInterlocutorId())
+                        .lastMessageId(summary.getLastMessageId())
+                        .lastSenderId(summary.getLastSenderId())
+                        .lastMessagePreview(summary.getLastMessagePreview())
+                        .lastMessageAt(summary.getLastMessageAt())
+                        .unreadCount(summary.getUnreadCount())
+                        .build())
+                .toList();
+        return InboxPageDto.builder()
+                .items(items)
+                .nextCursor(hasMore ? items.get(limit - 1).getLastMessageId() : null)
+                .build();
     }
 
-    @Transactional(readOnly = true)
+    // Счётчик из памяти; в БД идём только при первом запросе пользователя
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long getUnreadMessagesCount(Long userId) {
         log.debug("🔍 Запрос количества непрочитанных сообщений для {}", userId);
 
-        User user = findUserOrThrow(userId, USER_NOT_FOUND_LOG);
-        long count = messageRepository.countByReceiverAndIsReadFalse(user);
+        long count = unreadCounters.getOrLoad(userId, id -> {
+            requireUserExists(id, USER_NOT_FOUND_LOG);
+            return messageRepository.countUnread(id);
+        });
 
-        log.info("📊 Пользователь {} имеет {} непрочитанных сообщений", userId, count);
+        log.debug("📊 Пользователь {} имеет {} непрочитанных сообщений", userId, count);
         return count;
     }
 
-    private MessageDto convertToDto(Message message) {
+    // Сверка счётчиков в памяти с unread_count во входящих
+    @Scheduled(initialDelayString = "${app.messages.unread.reconcile-interval-ms:60000}",
+            fixedDelayString = "${app.messages.unread.reconcile-interval-ms:60000}")
+    public void reconcileUnreadCounters() {
+        int updated = unreadCounters.reconcile(this::countUnreadByUsers);
+        if (updated > 0) {
+            log.info("🔄 Сверка непрочитанных: исправлено {} счётчиков", updated);
+        }
+    }
+
+    private LongLongHashMap countUnreadByUsers(long[] userIds) {
+        LongLongHashMap counts = new LongLongHashMap(userIds.length);
+        for (int from = 0; from < userIds.length; from += RECONCILE_BATCH_SIZE) {
+            long[] batch = Arrays.copyOfRange(userIds, from,
+                    Math.min(from + RECONCILE_BATCH_SIZE, userIds.length));
+            for (Object[] row : conversationSummaryRepository.sumUnreadByUsers(
+                    Arrays.stream(batch).boxed().toList())) {
+                counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        }
+        return counts;
+    }
+
+    // Сообщения пользователя (входящие и исходящие) новее sinceId, по возрастанию id
+    @Transactional(readOnly = true)
+    public List<MessageDto> getMessagesSince(Long userId, long sinceId, int limit) {
+        if (sinceId < 0) {
+            throw new IllegalArgumentException("since не может быть отрицательным");
+        }
+        return convertFromManyConversations(
+                messageRepository.findUserMessagesSince(userId, sinceId, limit));
+    }
+
+    // Поиск по тексту в переписке пользователя, от наиболее релевантных
+    @Transactional(readOnly = true)
+    public MessageSearchPageDto searchMessages(Long userId, String query, int offset, int limit) {
+        if (query == null || query.isBlank() || query.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Запрос поиска должен содержать от 1 до " + MAX_SEARCH_QUERY_LENGTH + " символов");
+        }
+        if (offset < 0 || offset > MAX_SEARCH_OFFSET || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Смещение должно быть от 0 до " + MAX_SEARCH_OFFSET
+                    + ", размер страницы — от 1 до " + MAX_PAGE_SIZE);
+        }
+        log.debug("🔎 Поиск сообщений пользователя {}: '{}', offset={}, limit={}",
+                userId, query, offset, limit);
+        requireUserExists(userId, USER_NOT_FOUND_LOG);
+
+        List<Message> rows = messageRepository.searchUserMessages(userId, query.trim(),
+                offset, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        return MessageSearchPageDto.builder()
+                .messages(convertFromManyConversations(hasMore ? rows.subList(0, limit) : rows))
+                .offset(offset)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Сообщения разных переписок: отметки прочтения загружаются одним запросом на все
+    private List<MessageDto> convertFromManyConversations(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> conversationIds = messages.stream()
+                .map(Message::getConversationId)
+                .collect(Collectors.toSet());
+        Map<String, Long> watermarks = conversationReadRepository
+                .findByConversationIdIn(conversationIds).stream()
+                .collect(Collectors.toMap(
+                        read -> read.getConversationId() + "/" + read.getUserId(),
+                        ConversationRead::getLastReadMessageId));
+        return messages.stream()
+                .map(message -> {
+                    Long receiverId = message.getReceiver().getId();
+                    Long watermark = watermarks.getOrDefault(
+                            message.getConversationId() + "/" + receiverId, 0L);
+                    return convertToDto(message, Map.of(receiverId, watermark));
+                })
+                .toList();
+    }
+
+    // Отметки прочтения обоих участников: userId -> id последнего прочитанного сообщения
+    private Map<Long, Long> findWatermarks(String conversationId) {
+        return conversationReadRepository.findByConversationId(conversationId).stream()
+                .collect(Collectors.toMap(ConversationRead::getUserId,
+                        ConversationRead::getLastReadMessageId));
+    }
+
+    // Для списков: у сжатого сообщения вместо текста превью, полный текст — getMessage
+    private MessageDto convertToDto(Message message, Map<Long, Long> watermarks) {
+        return convertToDto(message, watermarks, false);
+    }
+
+    private MessageDto convertToDto(Message message, Map<Long, Long> watermarks, boolean full) {
+        Long receiverId = message.getReceiver().getId();
+        boolean truncated = !full && message.isContentCompressed();
         return MessageDto.builder()
                 .id(message.getId())
-                .content(message.getContent())
+                .content(truncated ? message.getPreview() : message.getContent())
+                .truncated(truncated)
                 .timestamp(message.getTimestamp())
                 .senderId(message.getSender().getId())
-                .receiverId(message.getReceiver().getId())
-                .isRead(message.isRead())
+                .receiverId(receiverId)
+                .isRead(message.getId() <= watermarks.getOrDefault(receiverId, 0L))
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.exception.ResourceNotFoundException;
+import com.kirill.meetyou.repository.UserRepository;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// SSE-потоки новых сообщений. У каждого подписчика своя ограниченная очередь событий,
+// которую разбирает общий пул отправки; переполненная очередь означает медленного
+// клиента — поток закрывается, клиент переподключается и догружает историю страницей
+@Slf4j
+@Service
+public class MessageStreamService {
+    private final MessageHub messageHub;
+    private final UserRepository userRepository;
+    private final Executor pushExecutor;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final int maxStreamsPerUser;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public MessageStreamService(
+            MessageHub messageHub,
+            UserRepository userRepository,
+            @Qualifier("messagePushExecutor") Executor pushExecutor,
+            @Value("${app.messages.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${app.messages.stream.buffer-size:256}") int bufferSize,
+            @Value("${app.messages.stream.max-per-user:5}") int maxStreamsPerUser) {
+        this.messageHub = messageHub;
+        this.userRepository = userRepository;
+        this.pushExecutor = pushExecutor;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+    }
+
+    public SseEmitter open(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            log.error("❌ Пользователь не найден: ID {}", userId);
+            throw new ResourceNotFoundException("Пользователь не найден");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        subscribers.add(subscriber);
+        if (!messageHub.subscribe(userId, subscriber, maxStreamsPerUser)) {
+            subscribers.remove(subscriber);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много открытых потоков, максимум " + maxStreamsPerUser);
+        }
+        subscriber.enqueue(SseEmitter.event().comment("connected"));
+        log.info("📡 Открыт поток сообщений для {}", userId);
+        return emitter;
+    }
+
+    // Комментарий SSE держит соединение живым через прокси и выявляет оборванные сокеты
+    @Scheduled(fixedDelayString = "${app.messages.stream.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    int countSubscribers() {
+        return subscribers.size();
+    }
+
+    private final class Subscriber implements MessageHub.Listener {
+        private final long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        @Override
+        public void onMessage(MessageDto message) {
+            enqueue(SseEmitter.event()
+                    .id(String.valueOf(message.getId()))
+                    .name("message")
+                    .data(message));
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                log.warn("🐢 Поток пользователя {} не успевает читать, соединение закрыто", userId);
+                drop();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        // Не больше одной задачи отправки на подписчика: SseEmitter.send не потокобезопасен
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                pushExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                log.warn("⚠️ Пул отправки переполнен, поток пользователя {} закрыт", userId);
+                drop();
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Поток пользователя {} оборван: {}", userId, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!closed.get() && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void drop() {
+            close();
+            emitter.complete();
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                messageHub.unsubscribe(userId, this);
+                subscribers.remove(this);
+                buffer.clear();
+            }
+        }
+    }
+}
@@ -5,7 +5,10 @@ import com.kirill.meetyou.model.Photo;
 import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.PhotoRepository;
 import com.kirill.meetyou.repository.UserRepository;
+import com.kirill.meetyou.utils.FileStreamUtils;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -14,8 +17,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,14 +32,25 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PhotoService {
-    private static final String UPLOAD_DIR = "/home/kirill/Изображения/";
     private static final String IS_MAIN_FALSE = "false";
     private static final String IS_MAIN_TRUE = "true";
     private static final String CLEAR_MAIN_PHOTOS_LOG = "Очистка текущих главных фотографий для пользователя {}";
     private final PhotoRepository photoRepository;
     private final UserRepository userRepository;
+    private final Executor uploadExecutor;
+    private final String uploadDir;
+
+    public PhotoService(
+            PhotoRepository photoRepository,
+            UserRepository userRepository,
+            @Qualifier("photoUploadExecutor") Executor uploadExecutor,
+            @Value("${app.upload.dir}") String uploadDir) {
+        this.photoRepository = photoRepository;
+        this.userRepository = userRepository;
+        this.uploadExecutor = uploadExecutor;
+        this.uploadDir = uploadDir;
+    }
 
     @Transactional
     public Photo addPhoto(Long userId, MultipartFile file, String isMain) {
@@ -57,7 +76,7 @@ public class PhotoService {
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с id: " + userId + " не найден"));
 
         String fileName = saveFile(file);
-        String photoUrl = UPLOAD_DIR + fileName;
+        String photoUrl = uploadDir + fileName;
 
         Photo photo = new Photo();
         photo.setPhotoUrl(photoUrl);
@@ -153,7 +172,8 @@ public class PhotoService {
 
             String photoUrl = photo.getPhotoUrl();
             if (photoUrl != null && !photoUrl.isEmpty()) {
-                Path filePath = Paths.get(UPLOAD_DIR, photoUrl);
+                // photoUrl уже содержит каталог загрузки (см. addPhoto)
+                Path filePath = Paths.get(photoUrl);
                 try {
                     if (Files.exists(filePath)) {
                         Files.delete(filePath);
@@ -170,6 +190,7 @@ public class PhotoService {
 
             if (isMainPhoto(photo)) {
                 log.debug("Удалена основная фотография для пользователя {}", userId);
+                photoRepository.setNewestPhotoAsMain(userId);
             }
 
             log.info("Фотография {} успешно удалена для пользователя {}", photoId, userId);
@@ -209,14 +230,22 @@ public class PhotoService {
         }
     }
 
+    // Файлы пишутся на диск параллельно; фотографии собираются в исходном порядке
+    // и сохраняются одним saveAll. Любая ошибка записи файла — отказ только этого файла.
+    // Главной становится первая сохранённая фотография: прежние главные уже сброшены
     private List<Photo> processMultiplePhotos(Long userId, List<MultipartFile> files, User user, boolean hasMainPhoto) {
+        List<CompletableFuture<String>> writes = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            writes.add(startWrite(file));
+        }
+
         List<Photo> photos = new ArrayList<>();
         List<String> failedFiles = new ArrayList<>();
-
         for (int i = 0; i < files.size(); i++) {
             try {
-                processSinglePhoto(files.get(i), user, hasMainPhoto, i, photos);
-            } catch (ResponseStatusException | IOException e) {
+                String fileName = awaitWrite(writes.get(i));
+                photos.add(createPhoto(fileName, user, hasMainPhoto && photos.isEmpty()));
+            } catch (IOException | RuntimeException e) {
                 log.error("Ошибка при сохранении файла {} для пользователя {}: {}", files.get(i).getOriginalFilename(), userId, e.getMessage());
                 failedFiles.add(files.get(i).getOriginalFilename());
             }
@@ -234,27 +263,59 @@ public class PhotoService {
         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не удалось сохранить ни один файл: " + failedFiles);
     }
 
-    private void processSinglePhoto(MultipartFile file, User user, boolean hasMainPhoto, int index, List<Photo> photos) throws IOException {
-        validateFile(file);
-        String fileName = saveFile(file);
-        String photoUrl = UPLOAD_DIR + fileName;
+    private CompletableFuture<String> startWrite(MultipartFile file) {
+        try {
+            validateFile(file);
+        } catch (ResponseStatusException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return saveFile(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, uploadExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String awaitWrite(CompletableFuture<String> write) throws IOException {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
 
+    private Photo createPhoto(String fileName, User user, boolean isMain) {
         Photo photo = new Photo();
-        photo.setPhotoUrl(photoUrl);
-        photo.setIsMainString(hasMainPhoto && index == 0 ? IS_MAIN_TRUE : IS_MAIN_FALSE);
+        photo.setPhotoUrl(uploadDir + fileName);
+        photo.setIsMainString(isMain ? IS_MAIN_TRUE : IS_MAIN_FALSE);
         photo.setUploadDate(LocalDate.now());
         photo.setUser(user);
-        photos.add(photo);
+        return photo;
     }
 
     private String saveFile(MultipartFile file) throws IOException {
         String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Path uploadPath = Paths.get(UPLOAD_DIR);
+        Path uploadPath = Paths.get(uploadDir);
         if (!Files.exists(uploadPath)) {
             Files.createDirectories(uploadPath);
         }
-        Path filePath = uploadPath.resolve(fileName);
-        Files.write(filePath, file.getBytes());
+        // Файл идёт из multipart-потока на диск через буфер фиксированного размера,
+        // не собираясь целиком в памяти
+        try (InputStream input = file.getInputStream()) {
+            FileStreamUtils.copyAtomically(input, uploadPath.resolve(fileName));
+        }
         return fileName;
     }
 
@@ -3,13 +3,19 @@ package com.kirill.meetyou.service;
 import com.kirill.meetyou.cache.UserCache;
 import com.kirill.meetyou.dto.BulkResponse;
 import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserDto;
+import com.kirill.meetyou.dto.UserInterestDto;
 import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.UserRepository;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -19,12 +25,17 @@ import org.springframework.web.server.ResponseStatusException;
 @Slf4j
 @Service
 public class UserService {
+    private static final int INTEREST_BATCH_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final UserCache cache;
+    private final FriendService friendService;
 
-    public UserService(UserRepository userRepository, UserCache cache) {
+    public UserService(UserRepository userRepository, UserCache cache,
+                       FriendService friendService) {
         this.userRepository = userRepository;
         this.cache = cache;
+        this.friendService = friendService;
     }
 
     public List<User> findAll() {
@@ -98,6 +109,7 @@ public class UserService {
         }
     }
 
+    @Transactional
     public void delete(Long id) {
         try {
             log.info("Deleting user with ID: {}", id);
@@ -112,6 +124,7 @@ public class UserService {
 
             log.debug("🗑 [Cache Remove] Removing user {} from cache", id);
             cache.remove(id);
+            friendService.removeAllFriendships(id);
             userRepository.deleteById(id);
             log.info("Successfully deleted user: {}", id);
         } catch (Exception e) {
@@ -153,6 +166,63 @@ public class UserService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public List<UserDto> findByInterest(String interestType) {
+        log.debug("Searching users by interest: {}", interestType);
+        return toDtosWithInterests(userRepository.findUserDtosByInterestType(interestType));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserDto> findByAllInterests(Set<String> interestTypes) {
+        log.debug("Searching users having all interests: {}", interestTypes);
+        return toDtosWithInterests(userRepository.findUserDtosByAllInterestTypes(interestTypes,
+                interestTypes.size()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserDto> findByAnyInterest(Set<String> interestTypes) {
+        log.debug("Searching users having any of interests: {}", interestTypes);
+        return toDtosWithInterests(userRepository.findUserDtosByAnyInterestTypes(interestTypes));
+    }
+
+    @Transactional(readOnly = true)
+    public long countByInterest(String interestType) {
+        return userRepository.countUsersByInterestType(interestType);
+    }
+
+    @Transactional(readOnly = true)
+    public long countByAllInterests(Set<String> interestTypes) {
+        return userRepository.countUsersByAllInterestTypes(interestTypes, interestTypes.size());
+    }
+
+    @Transactional(readOnly = true)
+    public long countByAnyInterest(Set<String> interestTypes) {
+        return userRepository.countUsersByAnyInterestTypes(interestTypes);
+    }
+
+    // Два запроса на выборку: пользователи (id, name, email, birth, age) и их интересы
+    // пачками по INTEREST_BATCH_SIZE id, чтобы список IN не рос вместе с выборкой
+    private List<UserDto> toDtosWithInterests(List<UserDto> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> userIds = users.stream().map(UserDto::getId).toList();
+        Map<Long, Set<String>> interestsByUser = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += INTEREST_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(from,
+                    Math.min(from + INTEREST_BATCH_SIZE, userIds.size()));
+            for (UserInterestDto row : userRepository.findInterestTypesByUserIds(batch)) {
+                interestsByUser.computeIfAbsent(row.getUserId(), k -> new TreeSet<>())
+                        .add(row.getInterestType());
+            }
+        }
+
+        users.forEach(user -> user.setInterests(
+                interestsByUser.getOrDefault(user.getId(), Set.of())));
+        return users;
+    }
+
     private void validateUserForCreation(User user) {
         if (user == null) {
             log.error("Attempt to create null user");
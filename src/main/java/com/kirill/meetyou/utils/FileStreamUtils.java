@@ -0,0 +1,65 @@
+package com.kirill.meetyou.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+public final class FileStreamUtils {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // createTempFile создаёт файл с правами 0600; загруженный файл должен остаться читаемым
+    // для веб-сервера и резервного копирования, как при прежней записи через Files.write
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS =
+            PosixFilePermissions.fromString("rw-r--r--");
+    // Один буфер на поток: копирование файла любого размера не выделяет память под содержимое
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    private FileStreamUtils() {
+        throw new UnsupportedOperationException("Это utility-класс, не предназначенный"
+                + " для создания экземпляров");
+    }
+
+    // Пишет поток во временный файл рядом с target и переносит его на место одной операцией:
+    // читатели видят либо весь файл, либо никакого. При ошибке временный файл удаляется
+    public static long copyAtomically(InputStream input, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, TEMP_SUFFIX);
+        try {
+            if (temp.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(temp, FILE_PERMISSIONS);
+            }
+            long written = copy(input, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static long copy(InputStream input, Path destination) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        byte[] bytes = buffer.array();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = input.read(bytes)) != -1) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kirill.meetyou.utils;
+
+// Счётчик long -> int на открытой адресации, без упаковки ключей и значений
+public final class LongIntCounter extends LongOpenHashKeys {
+    private int[] values;
+
+    public LongIntCounter() {
+        this(16);
+    }
+
+    public LongIntCounter(int expectedSize) {
+        super(expectedSize);
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    public void add(long key, int delta) {
+        int slot = slotFor(key);
+        if (!isFree(slot)) {
+            values[slot] += delta;
+            return;
+        }
+        occupy(slot, key);
+        values[slot] = delta;
+        growIfNeeded();
+    }
+
+    public int get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    public void addAll(LongIntCounter other) {
+        other.forEach(this::add);
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    void allocateValues(int capacity) {
+        values = new int[capacity];
+    }
+
+    @Override
+    void moveValues(int capacity, int[] moves) {
+        int[] oldValues = values;
+        values = new int[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] >= 0) {
+                values[moves[i]] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,73 @@
+package com.kirill.meetyou.utils;
+
+// Отображение long -> long на открытой адресации; ключ Long.MIN_VALUE не поддерживается
+public final class LongLongHashMap extends LongOpenHashKeys {
+    private long[] values;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    // Возвращает false, если ключ уже был в отображении (значение при этом не меняется)
+    public boolean putIfAbsent(long key, long value) {
+        int slot = slotFor(key);
+        if (!isFree(slot)) {
+            return false;
+        }
+        occupy(slot, key);
+        values[slot] = value;
+        growIfNeeded();
+        return true;
+    }
+
+    public void put(long key, long value) {
+        int slot = slotFor(key);
+        if (!isFree(slot)) {
+            values[slot] = value;
+            return;
+        }
+        occupy(slot, key);
+        values[slot] = value;
+        growIfNeeded();
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public long get(long key, long missingValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : missingValue;
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            if (key != FREE) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    void allocateValues(int capacity) {
+        values = new long[capacity];
+    }
+
+    @Override
+    void moveValues(int capacity, int[] moves) {
+        long[] oldValues = values;
+        values = new long[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] >= 0) {
+                values[moves[i]] = oldValues[i];
+            }
+        }
+    }
+}
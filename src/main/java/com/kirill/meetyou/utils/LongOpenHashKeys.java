@@ -0,0 +1,84 @@
+package com.kirill.meetyou.utils;
+
+import java.util.Arrays;
+
+// Общая часть отображений с ключами long на открытой адресации (LongIntCounter,
+// LongLongHashMap): линейное пробирование, ёмкость — степень двойки, заполнение не больше
+// половины. Ключ Long.MIN_VALUE зарезервирован под пустую ячейку. Значения хранит наследник
+// в своём массиве с теми же индексами и переносит их при росте таблицы
+abstract class LongOpenHashKeys {
+    static final long FREE = Long.MIN_VALUE;
+
+    long[] keys;
+    int size;
+
+    LongOpenHashKeys(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 16) - 1) << 1;
+        keys = newKeys(capacity);
+        allocateValues(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Ячейка с ключом или свободная ячейка, куда он встанет
+    final int slotFor(long key) {
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != FREE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Ячейка с ключом или -1
+    final int find(long key) {
+        int index = slotFor(key);
+        return keys[index] == FREE ? -1 : index;
+    }
+
+    final boolean isFree(int slot) {
+        return keys[slot] == FREE;
+    }
+
+    // Занимает свободную ячейку; значение записывает наследник, затем вызывает growIfNeeded
+    final void occupy(int slot, long key) {
+        keys[slot] = key;
+        size++;
+    }
+
+    final void growIfNeeded() {
+        if (size * 2 <= keys.length) {
+            return;
+        }
+        long[] oldKeys = keys;
+        keys = newKeys(oldKeys.length * 2);
+        int[] moves = new int[oldKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE) {
+                moves[i] = -1;
+            } else {
+                moves[i] = slotFor(oldKeys[i]);
+                keys[moves[i]] = oldKeys[i];
+            }
+        }
+        moveValues(keys.length, moves);
+    }
+
+    abstract void allocateValues(int capacity);
+
+    // moves[i] — новая ячейка для старой ячейки i или -1, если она была пуста
+    abstract void moveValues(int capacity, int[] moves);
+
+    private static long[] newKeys(int capacity) {
+        long[] result = new long[capacity];
+        Arrays.fill(result, FREE);
+        return result;
+    }
+
+    private static int indexFor(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kirill.meetyou.utils;
+
+import java.util.Arrays;
+
+// Операции над отсортированными массивами long без дубликатов
+public final class SortedLongArrays {
+    private SortedLongArrays() {
+        throw new UnsupportedOperationException("Это utility-класс, не предназначенный"
+                + " для создания экземпляров");
+    }
+
+    public static long[] with(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        int insertAt = -index - 1;
+        long[] result = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(sorted, insertAt, result, insertAt + 1, sorted.length - insertAt);
+        return result;
+    }
+
+    public static long[] without(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return sorted;
+        }
+        long[] result = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        System.arraycopy(sorted, index + 1, result, index, sorted.length - index - 1);
+        return result;
+    }
+
+    public static boolean contains(long[] sorted, long value) {
+        return Arrays.binarySearch(sorted, value) >= 0;
+    }
+
+    public static long[] union(long[] left, long[] right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        long[] result = new long[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                result[size++] = left[i++];
+            } else if (left[i] > right[j]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i++];
+                j++;
+            }
+        }
+        while (i < left.length) {
+            result[size++] = left[i++];
+        }
+        while (j < right.length) {
+            result[size++] = right[j++];
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public static int intersectionSize(long[] left, long[] right) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Страница пересечения: пропускает offset общих элементов и берёт не больше limit
+    public static long[] intersection(long[] left, long[] right, int offset, int limit) {
+        LongArrayList result = new LongArrayList(Math.min(limit, 64));
+        int i = 0;
+        int j = 0;
+        int skipped = 0;
+        while (i < left.length && j < right.length && result.size() < limit) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(left[i]);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result.toArray();
+    }
+}
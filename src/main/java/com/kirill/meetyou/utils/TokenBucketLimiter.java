@@ -0,0 +1,107 @@
+package com.kirill.meetyou.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Token bucket по ключу без блокировок. Корзина хранится одним числом — теоретическим
+// временем следующего запроса (GCRA): capacity запросов подряд, дальше по одному каждые
+// interval. Обновление — CAS одного AtomicLong.
+// Корзина, у которой это время уже прошло, полна и не отличается от новой, поэтому такие
+// корзины удаляются без потери состояния. Число ключей ограничено maxKeys: если места нет,
+// новый ключ списывает токен из одной общей корзины переполнения с теми же параметрами —
+// иначе поток выдуманных ключей заполнил бы таблицу и снял ограничение со всех новых.
+// Очистку по расписанию делает владелец (evictIdle); при переполнении запрос может запустить
+// её сам, но не чаще раза в секунду — иначе каждый новый ключ обходил бы всю таблицу
+public final class TokenBucketLimiter {
+    private static final long EVICTION_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflowBucket;
+    private final LongAdder overflowed = new LongAdder();
+    private final AtomicLong nextEvictionAt;
+
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        this(capacity, refillPerMinute, maxKeys, System::nanoTime);
+    }
+
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int maxKeys,
+                              LongSupplier nanoClock) {
+        if (capacity < 1 || refillPerMinute < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Capacity, refill rate and max keys must be positive");
+        }
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        this.overflowBucket = new AtomicLong(nanoClock.getAsLong());
+        this.nextEvictionAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    // 0 — запрос разрешён и токен списан, иначе сколько наносекунд ждать следующего токена
+    public long tryAcquire(long key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && (!tryEvictOnOverflow(now)
+                    || buckets.size() >= maxKeys)) {
+                overflowed.increment();
+                return acquire(overflowBucket, now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        return acquire(bucket, now);
+    }
+
+    public int evictIdle() {
+        return evictIdle(nanoClock.getAsLong());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // Сколько запросов новых ключей пришлось на общую корзину из-за заполненной таблицы
+    public long overflowed() {
+        return overflowed.sum();
+    }
+
+    private long acquire(AtomicLong bucket, long now) {
+        while (true) {
+            long theoretical = bucket.get();
+            long allowedAt = theoretical - burstNanos;
+            if (now - allowedAt < 0) {
+                return allowedAt - now;
+            }
+            long next = Math.max(theoretical - now, 0) + now + intervalNanos;
+            if (bucket.compareAndSet(theoretical, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Очистку запускает один запрос из всех, пришедших после паузы; остальные не ждут её
+    private boolean tryEvictOnOverflow(long now) {
+        long allowedAt = nextEvictionAt.get();
+        if (now - allowedAt < 0
+                || !nextEvictionAt.compareAndSet(allowedAt, now + EVICTION_BACKOFF_NANOS)) {
+            return false;
+        }
+        evictIdle(now);
+        return true;
+    }
+
+    // Параллельный запрос может успеть списать токен из удаляемой корзины — он теряется,
+    // ограничение от этого только мягче
+    private int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+}
@@ -0,0 +1,25 @@
+package com.kirill.meetyou.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtils {
+    private TransactionUtils() {
+        throw new UnsupportedOperationException("Это utility-класс, не предназначенный"
+                + " для создания экземпляров");
+    }
+
+    // Выполняет действие после коммита текущей транзакции, а вне транзакции — сразу
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,164 @@
+-- Идемпотентные изменения схемы, выполняются при каждом старте приложения
+-- (spring.sql.init.mode=always) до проверки сущностей Hibernate
+
+-- Уникальность пары нужна для INSERT ... ON CONFLICT DO NOTHING в FriendRepository
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_friends_pair ON user_friends (user_id, friend_id);
+
+-- Keyset-пагинация списка друзей: WHERE friend_id = ? AND user_id > ? ORDER BY user_id
+CREATE INDEX IF NOT EXISTS ix_user_friends_friend_user ON user_friends (friend_id, user_id);
+
+-- Денормализованное число друзей: строки user_friends с friend_id = users.id.
+-- Приложение поддерживает счётчик в FriendService. Колонка добавляется пустой и заполняется
+-- один раз; частичный индекс по незаполненным строкам делает повторный прогон мгновенным
+ALTER TABLE users ADD COLUMN IF NOT EXISTS friends_count INTEGER;
+
+CREATE INDEX IF NOT EXISTS ix_users_friends_count_missing ON users (id)
+    WHERE friends_count IS NULL;
+
+UPDATE users u
+SET friends_count = (SELECT COUNT(*) FROM user_friends f WHERE f.friend_id = u.id)
+WHERE u.friends_count IS NULL;
+
+ALTER TABLE users ALTER COLUMN friends_count SET DEFAULT 0;
+
+ALTER TABLE users ALTER COLUMN friends_count SET NOT NULL;
+
+-- Поиск главного фото для проекции друга
+CREATE INDEX IF NOT EXISTS ix_photos_main_by_user ON photos (user_id) WHERE is_main = 'true';
+
+-- Журнал изменений user_friends для догрузки снимка графа дружбы (FriendGraphCheckpoint).
+-- Записи старше app.friends.graph.changelog.retention-days удаляются по расписанию
+CREATE TABLE IF NOT EXISTS user_friends_log (
+    seq        BIGSERIAL PRIMARY KEY,
+    user_id    BIGINT      NOT NULL,
+    friend_id  BIGINT      NOT NULL,
+    added      BOOLEAN     NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS ix_user_friends_log_created ON user_friends_log (created_at);
+
+-- Канонический ключ переписки "меньший id:больший id" (Message.conversationIdOf).
+-- Частичный индекс по незаполненным строкам делает повторный backfill на старте мгновенным
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS conversation_id VARCHAR(41);
+
+CREATE INDEX IF NOT EXISTS ix_messages_conversation_missing ON messages (id)
+    WHERE conversation_id IS NULL;
+
+UPDATE messages
+SET conversation_id = LEAST(sender_id, receiver_id) || ':' || GREATEST(sender_id, receiver_id)
+WHERE conversation_id IS NULL;
+
+ALTER TABLE messages ALTER COLUMN conversation_id SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ix_messages_conversation_time
+    ON messages (conversation_id, timestamp, id);
+
+-- Индекс постраничной истории по направлениям заменён индексом по conversation_id
+DROP INDEX IF EXISTS ix_messages_sender_receiver_id;
+
+-- Отметки прочтения: одна строка на пользователя и переписку вместо флага is_read у сообщений
+CREATE TABLE IF NOT EXISTS conversation_reads (
+    user_id              BIGINT      NOT NULL,
+    conversation_id      VARCHAR(41) NOT NULL,
+    last_read_message_id BIGINT      NOT NULL,
+    updated_at           TIMESTAMP   NOT NULL,
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+-- Перенос прочитанности из is_read, пока таблица отметок пуста
+INSERT INTO conversation_reads (user_id, conversation_id, last_read_message_id, updated_at)
+SELECT receiver_id, conversation_id, MAX(id), now()
+FROM messages
+WHERE is_read AND NOT EXISTS (SELECT 1 FROM conversation_reads)
+GROUP BY receiver_id, conversation_id
+ON CONFLICT DO NOTHING;
+
+-- Время сообщения-отметки: запросы непрочитанных отсекают по нему старые секции messages.
+-- NULL, пока отметки нет (last_read_message_id = 0). Заполнение для прежних отметок идёт
+-- по частичному индексу и после первого запуска почти ничего не находит
+ALTER TABLE conversation_reads ADD COLUMN IF NOT EXISTS last_read_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS ix_conversation_reads_missing_at ON conversation_reads (user_id)
+    WHERE last_read_at IS NULL AND last_read_message_id > 0;
+
+UPDATE conversation_reads r
+SET last_read_at = m.timestamp
+FROM messages m
+WHERE m.id = r.last_read_message_id
+  AND r.last_read_at IS NULL AND r.last_read_message_id > 0;
+
+-- Непрочитанные считаются диапазоном id > отметки внутри (получатель, переписка)
+CREATE INDEX IF NOT EXISTS ix_messages_receiver_conversation_id
+    ON messages (receiver_id, conversation_id, id);
+
+-- Лента пользователя для long-poll: по диапазону id отдельно во входящих и исходящих
+CREATE INDEX IF NOT EXISTS ix_messages_receiver_id ON messages (receiver_id, id);
+
+CREATE INDEX IF NOT EXISTS ix_messages_sender_id ON messages (sender_id, id);
+
+-- Входящие: по строке на участника переписки, ведётся при отправке и прочтении
+-- (ConversationSummaryRepository), чтобы не агрегировать messages на каждый запрос
+CREATE TABLE IF NOT EXISTS conversation_summaries (
+    user_id              BIGINT       NOT NULL,
+    conversation_id      VARCHAR(41)  NOT NULL,
+    interlocutor_id      BIGINT       NOT NULL,
+    last_message_id      BIGINT       NOT NULL,
+    last_sender_id       BIGINT       NOT NULL,
+    last_message_preview VARCHAR(100) NOT NULL,
+    last_message_at      TIMESTAMP    NOT NULL,
+    unread_count         INTEGER      NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_conversation_summaries_inbox
+    ON conversation_summaries (user_id, last_message_id DESC);
+
+-- Первичное заполнение по последнему сообщению каждой переписки, пока таблица пуста
+INSERT INTO conversation_summaries (user_id, conversation_id, interlocutor_id, last_message_id,
+                                    last_sender_id, last_message_preview, last_message_at,
+                                    unread_count)
+SELECT p.user_id, m.conversation_id, p.interlocutor_id, m.id, m.sender_id, LEFT(m.content, 100),
+       m.timestamp,
+       (SELECT COUNT(*) FROM messages u
+        WHERE u.conversation_id = m.conversation_id AND u.receiver_id = p.user_id
+          AND u.id > COALESCE((SELECT r.last_read_message_id FROM conversation_reads r
+                               WHERE r.user_id = p.user_id
+                                 AND r.conversation_id = m.conversation_id), 0))
+FROM (SELECT MAX(id) AS id FROM messages GROUP BY conversation_id) l
+JOIN messages m ON m.id = l.id
+CROSS JOIN LATERAL (VALUES (m.sender_id, m.receiver_id), (m.receiver_id, m.sender_id))
+    AS p (user_id, interlocutor_id)
+WHERE NOT EXISTS (SELECT 1 FROM conversation_summaries)
+ON CONFLICT DO NOTHING;
+
+-- Полнотекстовый поиск: по строке на каждого участника сообщения, чтобы поиск
+-- сразу ограничивался перепиской пользователя (user_id).
+CREATE TABLE IF NOT EXISTS message_search (
+    user_id         BIGINT      NOT NULL,
+    message_id      BIGINT      NOT NULL,
+    conversation_id VARCHAR(41) NOT NULL,
+    sent_at         TIMESTAMP   NOT NULL,
+    document        TSVECTOR    NOT NULL,
+    PRIMARY KEY (user_id, message_id)
+);
+
+-- GIN только по document: фильтр по user_id даёт btree первичного ключа, и планировщик
+-- объединяет оба индекса (BitmapAnd) без расширения btree_gin. Прежний составной индекс
+-- (user_id, document) требовал btree_gin и удаляется
+DROP INDEX IF EXISTS ix_message_search_document;
+CREATE INDEX IF NOT EXISTS ix_message_search_tsv ON message_search USING GIN (document);
+
+CREATE INDEX IF NOT EXISTS ix_message_search_sent_at ON message_search (sent_at);
+
+-- Первичное заполнение из messages, пока индекс поиска пуст
+INSERT INTO message_search (user_id, message_id, conversation_id, sent_at, document)
+SELECT p.user_id, m.id, m.conversation_id, m.timestamp,
+       to_tsvector('russian', LEFT(m.content, 10000))
+FROM messages m
+CROSS JOIN LATERAL (VALUES (m.sender_id), (m.receiver_id)) AS p (user_id)
+WHERE NOT EXISTS (SELECT 1 FROM message_search)
+ON CONFLICT DO NOTHING;
+
+-- Начало текста сжатых сообщений (MessageBody) для списков без распаковки content
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS preview VARCHAR(200);
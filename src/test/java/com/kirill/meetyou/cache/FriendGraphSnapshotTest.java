@@ -0,0 +1,75 @@
+package com.kirill.meetyou.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FriendGraphSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeTo_ReadFrom_RestoresGraphWithDeltas() throws IOException {
+        FriendGraph source = new FriendGraph(mock(JdbcTemplate.class));
+        source.rebuild(new long[]{1, 2, 1, 4}, new long[]{3, 3, 2, 1}, 4);
+        source.addFriendship(5, 1);
+        source.removeFriendship(1, 2);
+
+        Path file = tempDir.resolve("graph/friend-graph.snapshot");
+        source.snapshot(42, 1_000L).writeTo(file);
+        FriendGraphSnapshot snapshot = FriendGraphSnapshot.readFrom(file);
+
+        FriendGraph restored = new FriendGraph(mock(JdbcTemplate.class));
+        restored.restore(snapshot);
+
+        assertEquals(42, snapshot.getWatermark());
+        assertEquals(1_000L, snapshot.getCreatedAtMillis());
+        assertArrayEquals(new long[]{3}, restored.getFriendIds(1));
+        assertArrayEquals(new long[]{4, 5}, restored.getFriendOfIds(1));
+        assertArrayEquals(new long[]{1, 2}, restored.getFriendOfIds(3));
+        assertFalse(restored.hasFriend(1, 2));
+        assertFalse(Files.exists(tempDir.resolve("graph/friend-graph.snapshot.tmp")));
+    }
+
+    @Test
+    void writeTo_EmptyGraph_RoundTrips() throws IOException {
+        FriendGraph source = new FriendGraph(mock(JdbcTemplate.class));
+        Path file = tempDir.resolve("empty.snapshot");
+
+        source.snapshot(0, 0).writeTo(file);
+        FriendGraphSnapshot snapshot = FriendGraphSnapshot.readFrom(file);
+
+        assertEquals(0, snapshot.getOutgoing().edgeCount());
+        assertEquals(0, snapshot.getIncoming().nodeCount());
+    }
+
+    @Test
+    void readFrom_TruncatedFile_ThrowsIOException() throws IOException {
+        FriendGraph source = new FriendGraph(mock(JdbcTemplate.class));
+        source.rebuild(new long[]{1, 2}, new long[]{2, 3}, 2);
+        Path file = tempDir.resolve("truncated.snapshot");
+        source.snapshot(1, 1).writeTo(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertThrows(IOException.class, () -> FriendGraphSnapshot.readFrom(file));
+    }
+
+    @Test
+    void readFrom_UnknownFormat_ThrowsIOException() throws IOException {
+        Path file = tempDir.resolve("garbage.snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> FriendGraphSnapshot.readFrom(file));
+    }
+}
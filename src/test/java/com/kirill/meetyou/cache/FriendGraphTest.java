@@ -0,0 +1,96 @@
+package com.kirill.meetyou.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FriendGraphTest {
+
+    private FriendGraph friendGraph;
+
+    @BeforeEach
+    void setUp() {
+        friendGraph = new FriendGraph(mock(JdbcTemplate.class));
+        // 1 -> 2, 1 -> 3, 2 -> 3, 4 -> 1
+        friendGraph.rebuild(new long[]{1, 2, 1, 4}, new long[]{3, 3, 2, 1}, 4);
+    }
+
+    @Test
+    void rebuild_BuildsSortedAdjacencyInBothDirections() {
+        assertArrayEquals(new long[]{2, 3}, friendGraph.getFriendIds(1));
+        assertArrayEquals(new long[]{4}, friendGraph.getFriendOfIds(1));
+        assertArrayEquals(new long[]{1, 2}, friendGraph.getFriendOfIds(3));
+        assertArrayEquals(new long[0], friendGraph.getFriendIds(3));
+        assertTrue(friendGraph.hasFriend(2, 3));
+        assertFalse(friendGraph.hasFriend(3, 2));
+    }
+
+    @Test
+    void addFriendship_MergesOverlayWithBase() {
+        assertTrue(friendGraph.addFriendship(1, 5));
+        assertTrue(friendGraph.addFriendship(1, 0));
+
+        assertArrayEquals(new long[]{0, 2, 3, 5}, friendGraph.getFriendIds(1));
+        assertArrayEquals(new long[]{1}, friendGraph.getFriendOfIds(5));
+        assertEquals(4, friendGraph.countFriends(1));
+        assertTrue(friendGraph.hasFriend(1, 5));
+    }
+
+    @Test
+    void addFriendship_ExistingEdge_ReturnsFalse() {
+        assertFalse(friendGraph.addFriendship(1, 2));
+        assertEquals(2, friendGraph.countFriends(1));
+    }
+
+    @Test
+    void removeUser_DropsEdgesInBothDirections() {
+        friendGraph.addFriendship(5, 1);
+
+        assertEquals(4, friendGraph.removeUser(1));
+
+        assertArrayEquals(new long[0], friendGraph.getConnectionIds(1));
+        assertArrayEquals(new long[0], friendGraph.getFriendIds(4));
+        assertArrayEquals(new long[0], friendGraph.getFriendIds(5));
+        assertArrayEquals(new long[]{2}, friendGraph.getFriendOfIds(3));
+        assertArrayEquals(new long[0], friendGraph.getFriendOfIds(2));
+        assertEquals(0, friendGraph.removeUser(1));
+    }
+
+    @Test
+    void removeFriendship_HidesBaseEdgeAndCanBeReverted() {
+        assertTrue(friendGraph.removeFriendship(1, 2));
+        assertFalse(friendGraph.hasFriend(1, 2));
+        assertArrayEquals(new long[]{3}, friendGraph.getFriendIds(1));
+        assertArrayEquals(new long[0], friendGraph.getFriendOfIds(2));
+        assertFalse(friendGraph.removeFriendship(1, 2));
+
+        assertTrue(friendGraph.addFriendship(1, 2));
+        assertArrayEquals(new long[]{2, 3}, friendGraph.getFriendIds(1));
+        assertEquals(1, friendGraph.countFriendOf(2));
+    }
+
+    @Test
+    void manyChanges_TriggerCompactionWithoutLosingEdges() {
+        for (long friendId = 100; friendId < 10_100; friendId++) {
+            friendGraph.addFriendship(7, friendId);
+        }
+        friendGraph.removeFriendship(7, 100);
+
+        assertEquals(9_999, friendGraph.countFriends(7));
+        assertFalse(friendGraph.hasFriend(7, 100));
+        assertTrue(friendGraph.hasFriend(7, 10_099));
+        assertArrayEquals(new long[]{2, 3}, friendGraph.getFriendIds(1));
+        assertArrayEquals(new long[]{7}, friendGraph.getFriendOfIds(5_000));
+    }
+
+    @Test
+    void getConnectionIds_MergesBothDirectionsWithoutDuplicates() {
+        friendGraph.addFriendship(2, 1);
+
+        assertArrayEquals(new long[]{2, 3, 4}, friendGraph.getConnectionIds(1));
+        assertArrayEquals(new long[]{1, 2}, friendGraph.getConnectionIds(3));
+    }
+}
@@ -0,0 +1,73 @@
+package com.kirill.meetyou.cache;
+
+import com.kirill.meetyou.utils.LongLongHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnreadCounterCacheTest {
+
+    private final UnreadCounterCache cache = new UnreadCounterCache();
+
+    @Test
+    void getOrLoad_LoadsOnlyOnce() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(3, cache.getOrLoad(1, id -> {
+            loads.incrementAndGet();
+            return 3;
+        }));
+        assertEquals(3, cache.getOrLoad(1, id -> {
+            loads.incrementAndGet();
+            return 100;
+        }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void add_ChangesLoadedCounterAndNeverGoesNegative() {
+        cache.getOrLoad(1, id -> 2);
+
+        cache.add(1, 1);
+        assertEquals(3, cache.getOrLoad(1, id -> -1));
+
+        cache.add(1, -10);
+        assertEquals(0, cache.getOrLoad(1, id -> -1));
+    }
+
+    @Test
+    void add_UnloadedUser_IsIgnored() {
+        cache.add(1, 5);
+
+        assertEquals(2, cache.getOrLoad(1, id -> 2));
+    }
+
+    @Test
+    void getOrLoad_ConcurrentChangeDuringLoad_DoesNotCache() {
+        long loaded = cache.getOrLoad(1, id -> {
+            cache.add(1, 1);
+            return 4;
+        });
+
+        assertEquals(4, loaded);
+        assertEquals(9, cache.getOrLoad(1, id -> 9));
+    }
+
+    @Test
+    void reconcile_ReplacesValuesFromLoader() {
+        cache.getOrLoad(1, id -> 2);
+        cache.getOrLoad(2, id -> 5);
+
+        int updated = cache.reconcile(userIds -> {
+            LongLongHashMap actual = new LongLongHashMap();
+            actual.put(1, 4);
+            return actual;
+        });
+
+        assertEquals(2, updated);
+        assertEquals(4, cache.getOrLoad(1, id -> -1));
+        assertEquals(0, cache.getOrLoad(2, id -> -1));
+    }
+}
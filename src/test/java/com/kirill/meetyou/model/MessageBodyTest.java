@@ -0,0 +1,70 @@
+package com.kirill.meetyou.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageBodyTest {
+
+    @Test
+    void of_ShortText_StoredAsIs() {
+        MessageBody body = MessageBody.of("привет");
+
+        assertEquals("привет", body.stored());
+        assertFalse(body.isCompressed());
+        assertNull(body.preview());
+    }
+
+    @Test
+    void of_LargeText_CompressedAndRestoredLazily() {
+        String text = "Очень длинное сообщение 😀 ".repeat(500);
+
+        MessageBody body = MessageBody.of(text);
+        MessageBody loaded = MessageBody.fromStored(body.stored());
+
+        assertTrue(body.isCompressed());
+        assertTrue(body.stored().length() < text.length() / 10);
+        assertTrue(loaded.isCompressed());
+        assertEquals(text, loaded.text());
+        assertEquals(text.substring(0, MessageBody.PREVIEW_LENGTH), body.preview());
+    }
+
+    @Test
+    void of_IncompressibleText_StoredAsIs() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < MessageBody.COMPRESSION_THRESHOLD * 2) {
+            text.appendCodePoint(0x4E00 + random.nextInt(0x5000));
+        }
+
+        MessageBody body = MessageBody.of(text.toString());
+
+        assertFalse(body.isCompressed());
+        assertEquals(text.toString(), MessageBody.fromStored(body.stored()).text());
+    }
+
+    @Test
+    void of_TextStartingWithMarker_IsEscaped() {
+        String text = "\u0001D не сжатый текст";
+
+        MessageBody body = MessageBody.of(text);
+
+        assertNotEquals(text, body.stored());
+        assertFalse(body.isCompressed());
+        assertEquals(text, MessageBody.fromStored(body.stored()).text());
+    }
+
+    @Test
+    void fromStored_LegacyPlainText_ReturnedAsIs() {
+        assertEquals("старое сообщение", MessageBody.fromStored("старое сообщение").text());
+    }
+
+    @Test
+    void previewOf_DoesNotSplitSurrogatePair() {
+        String text = "a".repeat(9) + "😀" + "b".repeat(10);
+
+        assertEquals("a".repeat(9), MessageBody.previewOf(text, 10));
+    }
+}
@@ -0,0 +1,86 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.dto.FriendPathDto;
+import com.kirill.meetyou.enums.PathSearchStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class FriendPathServiceTest {
+
+    private FriendGraph friendGraph;
+    private FriendPathService friendPathService;
+
+    @BeforeEach
+    void setUp() {
+        friendGraph = new FriendGraph(mock(JdbcTemplate.class));
+        // Цепочка 1 - 2 - 3 - 4 - 5 и короткий путь 1 - 6 - 5 в обратном направлении рёбер
+        friendGraph.rebuild(
+                new long[]{1, 2, 3, 4, 6, 5},
+                new long[]{2, 3, 4, 5, 1, 6}, 6);
+        friendPathService = new FriendPathService(friendGraph, 1_000_000);
+    }
+
+    @Test
+    void findPath_ReturnsShortestPathIgnoringEdgeDirection() {
+        FriendPathDto result = friendPathService.findPath(1L, 5L, 6);
+
+        assertEquals(PathSearchStatus.FOUND, result.getStatus());
+        assertEquals(2, result.getDegrees());
+        assertEquals(List.of(1L, 6L, 5L), result.getPath());
+        assertTrue(result.getNodesExpanded() > 0);
+    }
+
+    @Test
+    void findPath_RespectsDepthLimit() {
+        friendGraph.removeFriendship(6, 1);
+
+        FriendPathDto limited = friendPathService.findPath(1L, 5L, 3);
+        FriendPathDto full = friendPathService.findPath(1L, 5L, 4);
+
+        assertEquals(PathSearchStatus.NOT_FOUND, limited.getStatus());
+        assertNull(limited.getPath());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), full.getPath());
+    }
+
+    @Test
+    void findPath_SameUser_ReturnsZeroDegrees() {
+        FriendPathDto result = friendPathService.findPath(3L, 3L, 6);
+
+        assertEquals(0, result.getDegrees());
+        assertEquals(List.of(3L), result.getPath());
+    }
+
+    @Test
+    void findPath_DisconnectedUsers_NotFound() {
+        FriendPathDto result = friendPathService.findPath(1L, 42L, 6);
+
+        assertEquals(PathSearchStatus.NOT_FOUND, result.getStatus());
+    }
+
+    @Test
+    void findPath_HubNeighbourhood_StopsOnEdgeBudget() {
+        // У 100 одна связь, но это хаб 2 на 52 связи
+        for (long id = 100; id < 150; id++) {
+            friendGraph.addFriendship(2, id);
+        }
+        FriendPathService limited = new FriendPathService(friendGraph, 20);
+
+        FriendPathDto result = limited.findPath(100L, 5L, 6);
+
+        assertEquals(PathSearchStatus.BUDGET_EXCEEDED, result.getStatus());
+        assertEquals(1, result.getNodesExpanded());
+    }
+
+    @Test
+    void findPath_InvalidDepth_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                friendPathService.findPath(1L, 5L, 0));
+    }
+}
@@ -0,0 +1,96 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.cache.RecommendationCache;
+import com.kirill.meetyou.dto.FriendRecommendationDto;
+import com.kirill.meetyou.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FriendRecommendationServiceTest {
+
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RecommendationCache recommendationCache;
+
+    @InjectMocks
+    private FriendRecommendationService recommendationService;
+
+    // Мок кэша по умолчанию возвращает пустой список, то есть «попадание»
+    private void givenCacheMiss() {
+        when(recommendationCache.get(anyLong(), anyBoolean())).thenReturn(null);
+    }
+
+    private void givenGraph() {
+        // 1 дружит с 2 и 3; 2 знаком с 4 и 5; 3 знаком с 4 и 2
+        when(friendGraph.getConnectionIds(1L)).thenReturn(new long[]{2, 3});
+        when(friendGraph.getConnectionIds(2L)).thenReturn(new long[]{1, 3, 4, 5});
+        when(friendGraph.getConnectionIds(3L)).thenReturn(new long[]{1, 2, 4});
+    }
+
+    @Test
+    void recommend_RanksByMutualFriendsAndExcludesExistingFriends() {
+        givenCacheMiss();
+        givenGraph();
+
+        List<FriendRecommendationDto> result = recommendationService.recommend(1L, 10, false);
+
+        assertEquals(List.of(4L, 5L), result.stream().map(FriendRecommendationDto::getUserId).toList());
+        assertEquals(2, result.get(0).getMutualFriends());
+        assertEquals(1, result.get(1).getMutualFriends());
+        verify(recommendationCache).put(eq(1L), eq(false), anyList());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void recommend_WithInterests_BreaksTiesBySharedInterests() {
+        givenCacheMiss();
+        when(friendGraph.getConnectionIds(1L)).thenReturn(new long[]{2});
+        when(friendGraph.getConnectionIds(2L)).thenReturn(new long[]{1, 4, 5});
+        when(userRepository.countSharedInterests(eq(1L), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, 3L}));
+
+        List<FriendRecommendationDto> result = recommendationService.recommend(1L, 10, true);
+
+        assertEquals(List.of(5L, 4L), result.stream().map(FriendRecommendationDto::getUserId).toList());
+        assertEquals(3, result.get(0).getSharedInterests());
+    }
+
+    @Test
+    void recommend_CacheHit_SkipsGraphTraversal() {
+        List<FriendRecommendationDto> cached = List.of(
+                new FriendRecommendationDto(7L, 3, 0),
+                new FriendRecommendationDto(8L, 1, 0));
+        when(recommendationCache.get(1L, false)).thenReturn(cached);
+
+        List<FriendRecommendationDto> result = recommendationService.recommend(1L, 1, false);
+
+        assertEquals(List.of(cached.get(0)), result);
+        verify(friendGraph, never()).getConnectionIds(anyLong());
+    }
+
+    @Test
+    void recommend_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                recommendationService.recommend(1L, 0, false));
+    }
+}
@@ -1,5 +1,13 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.FriendGraph;
+import com.kirill.meetyou.cache.RecommendationCache;
+import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.FriendPageDto;
+import com.kirill.meetyou.dto.FriendPairDto;
+import com.kirill.meetyou.dto.FriendSummaryDto;
+import com.kirill.meetyou.dto.MutualFriendsDto;
+import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.FriendRepository;
 import com.kirill.meetyou.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -9,11 +17,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +34,12 @@ class FriendServiceTest {
     @Mock
     private FriendRepository friendRepository;
 
+    @Mock
+    private FriendGraph friendGraph;
+
+    @Mock
+    private RecommendationCache recommendationCache;
+
     @InjectMocks
     private FriendService friendService;
 
@@ -34,34 +49,35 @@ class FriendServiceTest {
     @Test
     void addFriend_Success() {
         // Arrange
-        User user = new User();
-        User friend = new User();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.of(friend));
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(false);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(true);
+        when(friendRepository.insertFriendship(userId, friendId)).thenReturn(1);
 
         // Act
         friendService.addFriend(userId, friendId);
 
         // Assert
-        verify(userRepository).save(user);
-        assertTrue(user.getFriends().contains(friend));
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).save(any());
+        verify(friendRepository).adjustFriendsCount(List.of(friendId), 1);
+        verify(friendGraph).addFriendship(userId, friendId);
+        verify(recommendationCache).invalidate(userId);
+        verify(recommendationCache).invalidate(friendId);
     }
 
     @Test
     void addFriend_UserNotFound_ThrowsException() {
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () ->
                 friendService.addFriend(userId, friendId));
+        verify(friendRepository, never()).insertFriendship(any(), any());
     }
 
     @Test
     void addFriend_FriendNotFound_ThrowsException() {
-        User user = new User();
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () ->
                 friendService.addFriend(userId, friendId));
@@ -75,50 +91,81 @@ class FriendServiceTest {
 
     @Test
     void addFriend_AlreadyFriends_ThrowsException() {
-        User user = new User();
-        User friend = new User();
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.of(friend));
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(true);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(true);
+        when(friendRepository.insertFriendship(userId, friendId)).thenReturn(0);
 
         assertThrows(IllegalStateException.class, () ->
                 friendService.addFriend(userId, friendId));
+        verify(friendRepository, never()).adjustFriendsCount(any(), anyInt());
+        verifyNoInteractions(friendGraph);
     }
 
     @Test
-    void removeFriend_Success() {
-        User user = new User();
-        User friend = new User();
-        user.addFriend(friend);
+    void addFriends_InsertsBatchAndReportsFailures() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findExistingIds(List.of(userId, 2L, 3L, 4L)))
+                .thenReturn(List.of(userId, 2L, 3L));
+        when(friendRepository.insertFriendships(userId, new long[]{2L, 3L}))
+                .thenReturn(new int[]{1, 0});
+
+        BulkResponse response = friendService.addFriends(userId, List.of(userId, 2L, 3L, 4L, 2L));
+
+        assertEquals(1, response.getSuccessCount());
+        assertEquals(3, response.getFailCount());
+        verify(friendRepository).adjustFriendsCount(List.of(2L), 1);
+        verify(friendGraph).addFriendship(userId, 2L);
+        verify(friendGraph, never()).addFriendship(userId, 3L);
+    }
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.of(friend));
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(true);
+    @Test
+    void addFriends_EmptyList_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                friendService.addFriends(userId, List.of()));
+    }
+
+    @Test
+    void removeFriend_Success() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(true);
+        when(friendRepository.deleteFriendship(userId, friendId)).thenReturn(1);
 
         friendService.removeFriend(userId, friendId);
 
-        verify(userRepository).save(user);
-        assertFalse(user.getFriends().contains(friend));
+        verify(userRepository, never()).save(any());
+        verify(friendRepository).adjustFriendsCount(List.of(friendId), -1);
+        verify(friendGraph).removeFriendship(userId, friendId);
+        verify(recommendationCache).invalidate(userId);
     }
 
     @Test
-    void removeFriend_NotFriends_ThrowsException() {
-        User user = new User();
-        User friend = new User();
+    void removeAllFriendships_DeletesRowsAndDropsUserFromGraph() {
+        when(friendGraph.getConnectionIds(userId)).thenReturn(new long[]{friendId});
+
+        friendService.removeAllFriendships(userId);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.of(friend));
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(false);
+        verify(friendRepository).deleteAllFriendships(userId);
+        verify(friendGraph).removeUser(userId);
+        verify(recommendationCache).invalidate(userId);
+        verify(recommendationCache).invalidate(friendId);
+    }
+
+    @Test
+    void removeFriend_NotFriends_ThrowsException() {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(true);
+        when(friendRepository.deleteFriendship(userId, friendId)).thenReturn(0);
 
         assertThrows(IllegalStateException.class, () ->
                 friendService.removeFriend(userId, friendId));
+        verifyNoInteractions(friendGraph);
     }
 
     @Test
     void getAllFriends_Success() {
         User friend = new User();
-        when(friendRepository.findFriendsOfUser(userId)).thenReturn(List.of(friend));
+        when(friendGraph.getFriendOfIds(userId)).thenReturn(new long[]{friendId});
+        when(userRepository.findAllById(List.of(friendId))).thenReturn(List.of(friend));
 
         List<User> friends = friendService.getAllFriends(userId);
 
@@ -128,25 +175,72 @@ class FriendServiceTest {
 
     @Test
     void getAllFriends_NoFriends_ReturnsEmptyList() {
-        when(friendRepository.findFriendsOfUser(userId)).thenReturn(Collections.emptyList());
+        when(friendGraph.getFriendOfIds(userId)).thenReturn(new long[0]);
 
         List<User> friends = friendService.getAllFriends(userId);
 
         assertTrue(friends.isEmpty());
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getFriendsPage_FullPage_ReturnsNextCursor() {
+        when(friendRepository.findFriendPage(userId, 0L, 3)).thenReturn(List.of(
+                new FriendSummaryDto(2L, "Anna", "a.jpg"),
+                new FriendSummaryDto(5L, "Boris", null),
+                new FriendSummaryDto(9L, "Vera", null)));
+
+        FriendPageDto page = friendService.getFriendsPage(userId, null, 2);
+
+        assertEquals(List.of(2L, 5L), page.getItems().stream().map(FriendSummaryDto::getId).toList());
+        assertEquals(5L, page.getNextCursor());
+    }
+
+    @Test
+    void getFriendsPage_LastPage_HasNoCursor() {
+        when(friendRepository.findFriendPage(userId, 5L, 3)).thenReturn(List.of(
+                new FriendSummaryDto(9L, "Vera", null)));
+
+        FriendPageDto page = friendService.getFriendsPage(userId, 5L, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getFriendsPage_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                friendService.getFriendsPage(userId, null, 0));
+        verifyNoInteractions(friendRepository);
+    }
+
+    @Test
+    void countFriends_ReadsCounter() {
+        when(friendRepository.findFriendsCount(userId)).thenReturn(Optional.of(42));
+
+        assertEquals(42, friendService.countFriends(userId));
+    }
+
+    @Test
+    void countFriends_UserNotFound_ThrowsException() {
+        when(friendRepository.findFriendsCount(userId)).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> friendService.countFriends(userId));
     }
 
     @Test
     void checkFriendship_Exists_ReturnsTrue() {
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(true);
+        when(friendGraph.hasFriend(friendId, userId)).thenReturn(true);
 
         boolean result = friendService.checkFriendship(userId, friendId);
 
         assertTrue(result);
+        verifyNoInteractions(friendRepository);
     }
 
     @Test
     void checkFriendship_NotExists_ReturnsFalse() {
-        when(friendRepository.existsFriendship(userId, friendId)).thenReturn(false);
+        when(friendGraph.hasFriend(friendId, userId)).thenReturn(false);
 
         boolean result = friendService.checkFriendship(userId, friendId);
 
@@ -156,7 +250,7 @@ class FriendServiceTest {
     // Дополнительные тесты для улучшения покрытия
     @Test
     void removeFriend_UserNotFound_ThrowsException() {
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () ->
                 friendService.removeFriend(userId, friendId));
@@ -164,11 +258,58 @@ class FriendServiceTest {
 
     @Test
     void removeFriend_FriendNotFound_ThrowsException() {
-        User user = new User();
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.findById(friendId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.existsById(friendId)).thenReturn(false);
 
         assertThrows(EntityNotFoundException.class, () ->
                 friendService.removeFriend(userId, friendId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getMutualFriends_CountOnly() {
+        when(friendGraph.getConnectionIds(userId)).thenReturn(new long[]{3, 4, 5, 7});
+        when(friendGraph.getConnectionIds(friendId)).thenReturn(new long[]{1, 4, 5, 6, 7});
+
+        MutualFriendsDto result = friendService.getMutualFriends(userId, friendId, 0, 0);
+
+        assertEquals(3, result.getCount());
+        assertNull(result.getFriendIds());
+    }
+
+    @Test
+    void getMutualFriends_ReturnsRequestedPage() {
+        when(friendGraph.getConnectionIds(userId)).thenReturn(new long[]{3, 4, 5, 7});
+        when(friendGraph.getConnectionIds(friendId)).thenReturn(new long[]{1, 4, 5, 6, 7});
+
+        MutualFriendsDto result = friendService.getMutualFriends(userId, friendId, 1, 5);
+
+        assertEquals(3, result.getCount());
+        assertEquals(List.of(5L, 7L), result.getFriendIds());
+    }
+
+    @Test
+    void getMutualFriends_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                friendService.getMutualFriends(userId, friendId, 0, 10_000));
+        verifyNoInteractions(friendGraph);
+    }
+
+    @Test
+    void countMutualFriends_ReadsEachUserOnce() {
+        when(friendGraph.getConnectionIds(1L)).thenReturn(new long[]{5, 6});
+        when(friendGraph.getConnectionIds(2L)).thenReturn(new long[]{5});
+        when(friendGraph.getConnectionIds(3L)).thenReturn(new long[]{5, 6, 7});
+
+        List<MutualFriendsDto> result = friendService.countMutualFriends(List.of(
+                new FriendPairDto(1L, 2L), new FriendPairDto(1L, 3L)));
+
+        assertEquals(List.of(1, 2), result.stream().map(MutualFriendsDto::getCount).toList());
+        verify(friendGraph, times(1)).getConnectionIds(1L);
+    }
+
+    @Test
+    void countMutualFriends_EmptyPairs_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                friendService.countMutualFriends(List.of()));
+    }
+}
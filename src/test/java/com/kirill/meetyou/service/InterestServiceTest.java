@@ -1,7 +1,10 @@
 package com.kirill.meetyou.service;
 
+import com.kirill.meetyou.cache.InterestPopularityCache;
 import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.InterestPopularityDto;
 import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.InterestRepository;
 import com.kirill.meetyou.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,9 +15,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,6 +43,9 @@ class InterestServiceTest {
     @Mock
     private UserCache userCache;
 
+    @Mock
+    private InterestPopularityCache popularityCache;
+
     @InjectMocks
     private InterestService interestService;
 
@@ -74,6 +84,26 @@ class InterestServiceTest {
         assertTrue(testUser.getInterests().contains(newInterest));
     }
 
+    @Test
+    void addInterestToUser_InTransaction_IncrementsPopularityOnlyAfterCommit() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
+        when(interestRepository.findByInterestType(anyString())).thenReturn(Optional.of(existingInterest));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            interestService.addInterestToUser(1L, "Sports");
+            verifyNoInteractions(popularityCache);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(popularityCache).increment("Sports");
+    }
+
     @Test
     void addInterestToUser_ExistingInterest_Success() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(testUser));
@@ -85,6 +115,7 @@ class InterestServiceTest {
         verify(interestRepository, never()).save(any(Interest.class));
         verify(userRepository).save(testUser);
         verify(userCache).put(1L, testUser);
+        verify(popularityCache).increment("Sports");
         assertTrue(testUser.getInterests().contains(existingInterest));
     }
 
@@ -132,6 +163,7 @@ class InterestServiceTest {
 
         verify(userRepository).save(testUser);
         verify(userCache).put(1L, testUser);
+        verify(popularityCache).decrement("Sports");
         assertFalse(testUser.getInterests().contains(existingInterest));
     }
 
@@ -198,6 +230,7 @@ class InterestServiceTest {
         assertEquals("Интерес уже существует", exception.getReason());
         verify(interestRepository, never()).save(any());
         verify(userRepository, never()).save(any());
+        verifyNoInteractions(popularityCache);
     }
 
     @Test
@@ -217,4 +250,35 @@ class InterestServiceTest {
         inOrder.verify(interestRepository).save(any());
         inOrder.verify(userRepository).save(testUser);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTopInterests_ReturnsFromCache() {
+        List<InterestPopularityDto> top = List.of(new InterestPopularityDto("Sports", 5L));
+        when(popularityCache.getTop(3)).thenReturn(top);
+
+        List<InterestPopularityDto> result = interestService.getTopInterests(3);
+
+        assertEquals(top, result);
+        verifyNoInteractions(interestRepository);
+    }
+
+    @Test
+    void getTopInterests_InvalidLimit_ThrowsException() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> interestService.getTopInterests(0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(popularityCache);
+    }
+
+    @Test
+    void reconcilePopularity_ReplacesCountersWithDatabaseValues() {
+        when(interestRepository.countUsersPerInterest()).thenReturn(List.of(
+                new InterestPopularityDto("Sports", 2L),
+                new InterestPopularityDto("Music", 0L)));
+
+        interestService.reconcilePopularity();
+
+        verify(popularityCache).reconcile(Map.of("Sports", 2L, "Music", 0L));
+    }
+}
@@ -1,100 +1,53 @@
 package com.kirill.meetyou.service;
 
-import org.junit.jupiter.api.BeforeEach;
+import com.kirill.meetyou.dto.LogTask;
+import com.kirill.meetyou.enums.LogTaskStatus;
+import com.kirill.meetyou.utils.LogFileProcessor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-
-import java.io.IOException;
-import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class LogGenerationServiceTest {
 
+    @Mock
+    private LogFileProcessor logFileProcessor;
+
     @InjectMocks
     private LogGenerationService logGenerationService;
 
-    @BeforeEach
-    void setUp() {
-        logGenerationService.setLogDirectory("/test/logs");
-    }
-
     @Test
-    void testGetLogFileFromArchive_Success() throws IOException {
-        try (var ignored = mockConstruction(UrlResource.class, (mock, context) -> {
-            when(mock.exists()).thenReturn(true);
-            when(mock.isReadable()).thenReturn(true);
-        })) {
-            Resource result = logGenerationService.getLogFileByDate(LocalDate.now());
-            assertNotNull(result);
-            assertTrue(result.exists());
-        }
-    }
+    void startTask_RegistersPendingTaskAndStartsProcessing() {
+        String id = logGenerationService.startTask("2025-01-01", "2025-01-31");
 
-    @Test
-    void testArchiveExistsButNotReadable() {
-        try (var ignored = mockConstruction(UrlResource.class, (mock, context) -> {
-            when(mock.exists()).thenReturn(true);
-            when(mock.isReadable()).thenReturn(false);
-        })) {
-            IOException ex = assertThrows(IOException.class,
-                    () -> logGenerationService.getLogFileByDate(LocalDate.now()));
-            assertEquals("Log file not found or not readable", ex.getMessage());
-        }
-    }
-
-    @Test
-    void testFallbackToCurrentLog() throws IOException {
-        try (var ignored = mockConstruction(UrlResource.class, (mock, context) -> {
-            if (context.arguments().toString().contains("archived")) {
-                when(mock.exists()).thenReturn(false);
-            } else {
-                when(mock.exists()).thenReturn(true);
-                when(mock.isReadable()).thenReturn(true);
-            }
-        })) {
-            Resource result = logGenerationService.getLogFileByDate(LocalDate.now());
-            assertNotNull(result);
-        }
+        LogTask task = logGenerationService.getStatus(id);
+        assertNotNull(task);
+        assertEquals(LogTaskStatus.PENDING, task.getStatus());
+        verify(logFileProcessor).processRange(eq("2025-01-01"), eq("2025-01-31"), eq(id), any());
     }
 
     @Test
-    void testCurrentLogExistsButNotReadable() {
-        try (var ignored = mockConstruction(UrlResource.class, (mock, context) -> {
-            if (context.arguments().toString().contains("archived")) {
-                when(mock.exists()).thenReturn(false);
-            } else {
-                when(mock.exists()).thenReturn(true);
-                when(mock.isReadable()).thenReturn(false);
-            }
-        })) {
-            IOException ex = assertThrows(IOException.class,
-                    () -> logGenerationService.getLogFileByDate(LocalDate.now()));
-            assertEquals("Log file not found or not readable", ex.getMessage());
-        }
+    void startTask_InvertedRange_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> logGenerationService.startTask("2025-02-01", "2025-01-01"));
+        verify(logFileProcessor, never()).processRange(anyString(), anyString(), anyString(), any());
     }
 
     @Test
-    void testBothFilesMissing() {
-        try (var ignored = mockConstruction(UrlResource.class,
-                (mock, context) -> when(mock.exists()).thenReturn(false))) {
-            IOException ex = assertThrows(IOException.class,
-                    () -> logGenerationService.getLogFileByDate(LocalDate.now()));
-            assertEquals("Log file not found or not readable", ex.getMessage());
-        }
+    void startTask_BadFormat_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> logGenerationService.startTask("01.01.2025", "2025-01-31"));
     }
 
     @Test
-    void testEmptyLogDirectory() {
-        logGenerationService.setLogDirectory("");
-        IOException ex = assertThrows(IOException.class,
-                () -> logGenerationService.getLogFileByDate(LocalDate.now()));
-        assertEquals("Log file not found or not readable", ex.getMessage());
+    void getStatus_UnknownId_ReturnsNull() {
+        assertNull(logGenerationService.getStatus("missing"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageHubTest {
+
+    private final MessageHub messageHub = new MessageHub();
+
+    @Test
+    void publish_DeliversOnlyToSubscribersOfUser() {
+        List<Long> received = new ArrayList<>();
+        MessageHub.Listener listener = message -> received.add(message.getId());
+        messageHub.subscribe(1L, listener);
+
+        messageHub.publish(1L, MessageDto.builder().id(10L).build());
+        messageHub.publish(2L, MessageDto.builder().id(11L).build());
+
+        assertEquals(List.of(10L), received);
+    }
+
+    @Test
+    void unsubscribe_RemovesEmptyUserEntry() {
+        MessageHub.Listener listener = message -> { };
+        messageHub.subscribe(1L, listener);
+        assertEquals(1, messageHub.countListeners(1L));
+
+        messageHub.unsubscribe(1L, listener);
+
+        assertEquals(0, messageHub.countListeners(1L));
+    }
+
+    @Test
+    void publish_FailingListenerDoesNotStopOthers() {
+        List<Long> received = new ArrayList<>();
+        messageHub.subscribe(1L, message -> {
+            throw new IllegalStateException("closed");
+        });
+        messageHub.subscribe(1L, message -> received.add(message.getId()));
+
+        messageHub.publish(1L, MessageDto.builder().id(10L).build());
+
+        assertEquals(List.of(10L), received);
+    }
+
+    @Test
+    void subscribe_ConcurrentOverLimit_AddsExactlyLimit() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                List<Long> inbox = new ArrayList<>();
+                MessageHub.Listener listener = message -> inbox.add(message.getId());
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return messageHub.subscribe(1L, listener, 3);
+                }));
+            }
+            start.countDown();
+
+            int added = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    added++;
+                }
+            }
+            assertEquals(3, added);
+            assertEquals(3, messageHub.countListeners(1L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void subscribe_ZeroLimit_LeavesNoEmptyEntry() {
+        assertFalse(messageHub.subscribe(1L, message -> { }, 0));
+        assertEquals(0, messageHub.countListeners(1L));
+    }
+}
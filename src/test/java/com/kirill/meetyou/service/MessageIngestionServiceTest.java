@@ -0,0 +1,154 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.repository.ConversationSummaryRepository;
+import com.kirill.meetyou.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageIngestionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ConversationSummaryRepository conversationSummaryRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MessageIngestionService ingestionService;
+    private final List<Long> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ingestionService = new MessageIngestionService(jdbcTemplate,
+                conversationSummaryRepository, messageRepository, transactionManager,
+                true, 3, 2, 50);
+        lenient().when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1000)))
+                .thenReturn(LongStream.rangeClosed(101, 1100).boxed().toList());
+    }
+
+    private MessageDto submit(long senderId, long receiverId) {
+        return ingestionService.submit(senderId, receiverId, "hello",
+                message -> stored.add(message.getId()));
+    }
+
+    @Test
+    void submit_AssignsIdsFromAllocatedBlockWithoutWriting() {
+        MessageDto first = submit(1, 2);
+        MessageDto second = submit(2, 1);
+
+        assertEquals(101L, first.getId());
+        assertEquals(102L, second.getId());
+        assertFalse(first.isRead());
+        assertEquals(2, ingestionService.countPending());
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), eq(1000));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    void flushPending_WritesInBatchesAndNotifiesAfterCommit() {
+        submit(1, 2);
+        submit(2, 1);
+        submit(1, 3);
+
+        ingestionService.flushPending();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.captor();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getAllValues().get(0).size());
+        assertEquals(1, rows.getAllValues().get(1).size());
+        Object[] row = rows.getAllValues().get(0).get(1);
+        assertEquals(102L, row[0]);
+        assertEquals("hello", row[1]);
+        assertNull(row[2]);
+        assertEquals("1:2", row[6]);
+        verify(conversationSummaryRepository, times(2)).recordMessages(anyList());
+        verify(messageRepository, times(2)).indexForSearch(anyList());
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(List.of(101L, 102L, 103L), stored);
+        assertEquals(0, ingestionService.countPending());
+    }
+
+    @Test
+    void submit_QueueFull_RejectsWithServiceUnavailable() {
+        submit(1, 2);
+        submit(1, 2);
+        submit(1, 2);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> submit(1, 2));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        assertEquals(3, ingestionService.countPending());
+    }
+
+    @Test
+    void flushPending_FailedBatch_RetriesRowsOneByOne() {
+        submit(1, 2);
+        submit(1, 99);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("fk"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("fk"));
+
+        ingestionService.flushPending();
+
+        verify(transactionManager, times(2)).rollback(any());
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+        verify(conversationSummaryRepository).recordMessages(
+                argThat(messages -> messages.size() == 1 && messages.get(0).getId() == 101L));
+        assertEquals(List.of(101L), stored);
+    }
+
+    @Test
+    void stop_FlushesQueueAndRejectsNewMessages() throws InterruptedException {
+        submit(1, 2);
+
+        ingestionService.stop();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(List.of(101L), stored);
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> submit(1, 2));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+    }
+
+    @Test
+    void start_WriterFlushesByInterval() throws InterruptedException {
+        ingestionService.start();
+        submit(1, 2);
+
+        verify(jdbcTemplate, timeout(2000)).batchUpdate(anyString(), anyList());
+        ingestionService.stop();
+        assertEquals(List.of(101L), stored);
+    }
+}
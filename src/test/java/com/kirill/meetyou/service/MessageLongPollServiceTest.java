@@ -0,0 +1,106 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageLongPollServiceTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final MessageHub messageHub = new MessageHub();
+
+    private MessageLongPollService longPollService;
+
+    @BeforeEach
+    void setUp() {
+        longPollService = new MessageLongPollService(messageService, messageHub, userRepository, 2);
+    }
+
+    @Test
+    void waitForMessages_PendingMessages_ReturnsImmediately() {
+        MessageDto pending = MessageDto.builder().id(11L).build();
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(messageService.getMessagesSince(1L, 10L, 100)).thenReturn(List.of(pending));
+
+        DeferredResult<List<MessageDto>> result = longPollService.waitForMessages(1L, 10L, 5_000);
+
+        assertTrue(result.hasResult());
+        assertEquals(List.of(pending), result.getResult());
+        assertEquals(0, messageHub.countListeners(1L));
+    }
+
+    @Test
+    void waitForMessages_NoMessages_ParksUntilHubSignal() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(messageService.getMessagesSince(1L, 10L, 100)).thenReturn(List.of());
+
+        DeferredResult<List<MessageDto>> result = longPollService.waitForMessages(1L, 10L, 5_000);
+        assertFalse(result.hasResult());
+        assertEquals(1, messageHub.countListeners(1L));
+
+        MessageDto old = MessageDto.builder().id(9L).build();
+        MessageDto fresh = MessageDto.builder().id(12L).build();
+        messageHub.publish(1L, old);
+        assertFalse(result.hasResult());
+        messageHub.publish(1L, fresh);
+
+        assertEquals(List.of(fresh), result.getResult());
+    }
+
+    @Test
+    void waitForMessages_TooManyWaiting_ThrowsWithoutQuery() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(messageService.getMessagesSince(1L, 10L, 100)).thenReturn(List.of());
+        longPollService.waitForMessages(1L, 10L, 5_000);
+        longPollService.waitForMessages(1L, 10L, 5_000);
+
+        assertThrows(ResponseStatusException.class, () ->
+                longPollService.waitForMessages(1L, 10L, 5_000));
+        assertEquals(2, messageHub.countListeners(1L));
+        verify(messageService, times(2)).getMessagesSince(1L, 10L, 100);
+    }
+
+    @Test
+    void waitForMessages_InvalidTimeout_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                longPollService.waitForMessages(1L, 10L, 120_000));
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void waitForMessages_NegativeSince_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                longPollService.waitForMessages(1L, -1L, 5_000));
+        assertEquals(0, messageHub.countListeners(1L));
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void waitForMessages_QueryFails_ReleasesSubscription() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(messageService.getMessagesSince(1L, 10L, 100))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        assertThrows(IllegalStateException.class, () ->
+                longPollService.waitForMessages(1L, 10L, 5_000));
+
+        assertEquals(0, messageHub.countListeners(1L));
+    }
+}
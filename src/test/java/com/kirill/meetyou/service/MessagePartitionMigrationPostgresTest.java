@@ -0,0 +1,113 @@
+package com.kirill.meetyou.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Перенос на настоящем PostgreSQL: MEETYOU_TEST_POSTGRES_URL (и при необходимости
+// MEETYOU_TEST_POSTGRES_USER / MEETYOU_TEST_POSTGRES_PASSWORD). Каждый тест работает
+// в своей схеме и удаляет её после себя
+@EnabledIfEnvironmentVariable(named = "MEETYOU_TEST_POSTGRES_URL", matches = ".+")
+class MessagePartitionMigrationPostgresTest {
+
+    private final String schema = "partition_migration_" + System.nanoTime();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getenv("MEETYOU_TEST_POSTGRES_URL"),
+                System.getenv("MEETYOU_TEST_POSTGRES_USER"),
+                System.getenv("MEETYOU_TEST_POSTGRES_PASSWORD"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA " + schema);
+        jdbcTemplate.execute("SET search_path TO " + schema);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGSERIAL PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO users DEFAULT VALUES");
+        jdbcTemplate.execute("INSERT INTO users DEFAULT VALUES");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA " + schema + " CASCADE");
+        dataSource.destroy();
+    }
+
+    @Test
+    void migrate_SerialId_CopiesRowsAndContinuesSequence() {
+        createMessages("BIGSERIAL");
+
+        migrate();
+
+        assertMigrated();
+        // Последовательность одна и принадлежит уже новой таблице
+        assertEquals(schema + ".messages_id_seq", jdbcTemplate.queryForObject(
+                "SELECT pg_get_serial_sequence('messages', 'id')", String.class));
+    }
+
+    @Test
+    void migrate_IdentityId_CopiesRowsAndContinuesSequence() {
+        createMessages("BIGINT GENERATED BY DEFAULT AS IDENTITY");
+
+        migrate();
+
+        assertMigrated();
+    }
+
+    // Колонки и индексы — как у таблицы messages до секционирования
+    private void createMessages(String idType) {
+        jdbcTemplate.execute("CREATE TABLE messages (id " + idType + " PRIMARY KEY,"
+                + " content TEXT NOT NULL, preview VARCHAR(200), timestamp TIMESTAMP NOT NULL,"
+                + " sender_id BIGINT NOT NULL REFERENCES users (id),"
+                + " receiver_id BIGINT NOT NULL REFERENCES users (id),"
+                + " is_read BOOLEAN NOT NULL, conversation_id VARCHAR(41) NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX ix_messages_receiver_id ON messages (receiver_id, id)");
+        for (String timestamp : new String[] {"2026-08-10", "2026-09-15", "2026-10-01"}) {
+            jdbcTemplate.update("INSERT INTO messages (content, timestamp, sender_id, receiver_id,"
+                    + " is_read, conversation_id) VALUES ('text', CAST(? AS TIMESTAMP), 1, 2,"
+                    + " FALSE, '1:2')", timestamp);
+        }
+    }
+
+    private void migrate() {
+        MessagePartitionService service = new MessagePartitionService(jdbcTemplate, dataSource,
+                new DataSourceTransactionManager(dataSource), 2, 0, true, true);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .executeWithoutResult(status -> service.migrate(LocalDate.of(2026, 10, 19)));
+    }
+
+    private void assertMigrated() {
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass('messages')", String.class));
+        assertEquals(3, count("messages"));
+        assertEquals(3, count("messages_unpartitioned"));
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('messages_p2026_08')", String.class));
+
+        // Имя индекса свободно для повторного прогона schema.sql
+        jdbcTemplate.execute("CREATE INDEX ix_messages_receiver_id ON messages (receiver_id, id)");
+
+        Long newId = jdbcTemplate.queryForObject("INSERT INTO messages (content, timestamp,"
+                + " sender_id, receiver_id, is_read, conversation_id) VALUES ('new',"
+                + " TIMESTAMP '2026-10-19 12:00', 2, 1, FALSE, '1:2') RETURNING id", Long.class);
+        assertTrue(newId > 3);
+
+        // Копия без внешних ключей не мешает удалить пользователя
+        jdbcTemplate.update("DELETE FROM messages");
+        assertEquals(1, jdbcTemplate.update("DELETE FROM users WHERE id = 1"));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,182 @@
+package com.kirill.meetyou.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessagePartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MessagePartitionService service(int retentionMonths, boolean archive) {
+        return new MessagePartitionService(jdbcTemplate, dataSource, transactionManager,
+                2, retentionMonths, archive, true);
+    }
+
+    @Test
+    void partitionName_RoundTripsThroughMonthOf() {
+        YearMonth month = YearMonth.of(2026, 3);
+
+        assertEquals("messages_p2026_03", MessagePartitionService.partitionName(month));
+        assertEquals(month, MessagePartitionService.monthOf("messages_p2026_03"));
+        assertNull(MessagePartitionService.monthOf("messages_default"));
+    }
+
+    @Test
+    void ensurePartitions_CreatesOneRangePerMonthAcrossYearEnd() {
+        service(0, true).ensurePartitions(YearMonth.of(2025, 12), YearMonth.of(2026, 1));
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS messages_p2025_12 PARTITION OF"
+                + " messages FOR VALUES FROM ('2025-12-01') TO ('2026-01-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS messages_p2026_01 PARTITION OF"
+                + " messages FOR VALUES FROM ('2026-01-01') TO ('2026-02-01')");
+    }
+
+    @Test
+    void ensurePartitions_FailedMonth_ContinuesWithNext() {
+        doThrow(new DataIntegrityViolationException("default has rows"))
+                .when(jdbcTemplate).execute(contains("messages_p2026_01"));
+
+        service(0, true).ensurePartitions(YearMonth.of(2026, 1), YearMonth.of(2026, 2));
+
+        verify(jdbcTemplate).execute(contains("messages_p2026_02"));
+    }
+
+    @Test
+    void purgeExpired_ArchivesOnlyPartitionsOlderThanRetention() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+                "messages_default", "messages_p2025_08", "messages_p2025_09", "messages_p2025_10"));
+
+        service(12, true).purgeExpired(LocalDate.of(2026, 10, 19));
+
+        verify(jdbcTemplate).execute("ALTER TABLE messages DETACH PARTITION messages_p2025_08");
+        verify(jdbcTemplate).execute("ALTER TABLE messages DETACH PARTITION messages_p2025_09");
+        verify(jdbcTemplate).execute(
+                "ALTER TABLE messages_p2025_09 RENAME TO messages_archive_2025_09");
+        verify(jdbcTemplate, never()).execute(contains("messages_p2025_10"));
+        verify(jdbcTemplate, never()).execute(contains("messages_default"));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+
+    @Test
+    void purgeExpired_WithoutArchive_DropsPartition() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("messages_p2024_01"));
+
+        service(1, false).purgeExpired(LocalDate.of(2026, 10, 19));
+
+        verify(jdbcTemplate).execute("ALTER TABLE messages DETACH PARTITION messages_p2024_01");
+        verify(jdbcTemplate).execute("DROP TABLE messages_p2024_01");
+        verify(jdbcTemplate).update("DELETE FROM message_search WHERE sent_at < ?",
+                Timestamp.valueOf("2024-02-01 00:00:00"));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void initialize_ChecksTableKindUnderAdvisoryLock() {
+        when(jdbcTemplate.queryForObject(contains("relkind"), eq(String.class))).thenReturn("p");
+
+        service(0, true).initialize();
+
+        InOrder order = inOrder(transactionManager, jdbcTemplate);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(jdbcTemplate).execute(startsWith("SELECT pg_advisory_xact_lock("));
+        order.verify(jdbcTemplate).queryForObject(contains("relkind"), eq(String.class));
+        order.verify(transactionManager).commit(any());
+        verify(jdbcTemplate, never()).execute(contains("RENAME TO messages_unpartitioned"));
+    }
+
+    @Test
+    void initialize_PlainTableWithoutOptIn_SkipsMigrationAndMaintenance() {
+        when(jdbcTemplate.queryForObject(contains("relkind"), eq(String.class))).thenReturn("r");
+
+        new MessagePartitionService(jdbcTemplate, dataSource, transactionManager,
+                2, 0, true, false).initialize();
+
+        verify(jdbcTemplate, never()).execute(contains("RENAME TO messages_unpartitioned"));
+        verify(jdbcTemplate, never()).execute(contains("PARTITION OF"));
+    }
+
+    @Test
+    void migrate_KeepsOldTableAsBackup() {
+        stubSequences("public.messages_id_seq", null);
+        when(jdbcTemplate.queryForList(startsWith("SELECT format('ALTER INDEX"), eq(String.class)))
+                .thenReturn(List.of("ALTER INDEX messages_pkey RENAME TO messages_pkey_backup"));
+
+        service(0, true).migrate(LocalDate.of(2026, 10, 19));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("ALTER TABLE messages RENAME TO messages_unpartitioned");
+        order.verify(jdbcTemplate).execute(
+                "ALTER INDEX messages_pkey RENAME TO messages_pkey_backup");
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TABLE messages ("));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+    }
+
+    // PRIMARY KEY (id, timestamp) не запрещает повтор id: новые id не должны совпасть
+    // со скопированными, поэтому последовательность новой таблицы уходит за MAX(id)
+    @Test
+    void migrate_IdentityColumn_MovesSequencePastCopiedIds() {
+        stubSequences("public.messages_id_seq", "public.messages_id_seq1");
+
+        service(0, true).migrate(LocalDate.of(2026, 10, 19));
+
+        verify(jdbcTemplate).queryForObject("SELECT setval('public.messages_id_seq1', GREATEST("
+                + "(SELECT last_value FROM public.messages_id_seq),"
+                + " (SELECT COALESCE(MAX(id), 1) FROM messages)))", Long.class);
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER SEQUENCE"));
+    }
+
+    @Test
+    void migrate_SerialColumn_KeepsSingleSequence() {
+        stubSequences("public.messages_id_seq", null);
+
+        service(0, true).migrate(LocalDate.of(2026, 10, 19));
+
+        verify(jdbcTemplate).execute("ALTER SEQUENCE public.messages_id_seq OWNED BY messages.id");
+        verify(jdbcTemplate, never()).queryForObject(startsWith("SELECT setval"), eq(Long.class));
+    }
+
+    // MIN(timestamp) и setval возвращают null: пустая таблица, результат setval не читается
+    private void stubSequences(String oldSequence, String newSequence) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.equals("SELECT pg_get_serial_sequence('messages_unpartitioned', 'id')")) {
+                return oldSequence;
+            }
+            if (sql.equals("SELECT pg_get_serial_sequence('messages', 'id')")) {
+                return newSequence;
+            }
+            return null;
+        });
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class))).thenReturn(null);
+        if (newSequence != null) {
+            when(jdbcTemplate.queryForObject(startsWith("SELECT setval"), eq(Long.class)))
+                    .thenReturn(null);
+        }
+    }
+}
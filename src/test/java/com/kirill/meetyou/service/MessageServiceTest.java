@@ -0,0 +1,553 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.UnreadCounterCache;
+import com.kirill.meetyou.dto.ConversationPageDto;
+import com.kirill.meetyou.dto.InboxEntryDto;
+import com.kirill.meetyou.dto.InboxPageDto;
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.dto.MessageSearchPageDto;
+import com.kirill.meetyou.exception.ResourceNotFoundException;
+import com.kirill.meetyou.model.ConversationRead;
+import com.kirill.meetyou.model.ConversationSummary;
+import com.kirill.meetyou.model.Message;
+import com.kirill.meetyou.model.User;
+import com.kirill.meetyou.repository.ConversationReadRepository;
+import com.kirill.meetyou.repository.ConversationSummaryRepository;
+import com.kirill.meetyou.repository.MessageRepository;
+import com.kirill.meetyou.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageServiceTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ConversationReadRepository conversationReadRepository;
+
+    @Mock
+    private ConversationSummaryRepository conversationSummaryRepository;
+
+    @Mock
+    private MessageHub messageHub;
+
+    @Mock
+    private MessageIngestionService messageIngestionService;
+
+    @Spy
+    private UnreadCounterCache unreadCounters = new UnreadCounterCache();
+
+    @InjectMocks
+    private MessageService messageService;
+
+    private final Long user1Id = 1L;
+    private final Long user2Id = 2L;
+    private static final LocalDateTime NO_WATERMARK_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime RECEIVED_AT = LocalDateTime.of(2026, 10, 19, 12, 0);
+
+    private Message message(long id, Long senderId, Long receiverId) {
+        User sender = new User();
+        sender.setId(senderId);
+        User receiver = new User();
+        receiver.setId(receiverId);
+        Message message = new Message();
+        message.setId(id);
+        message.setContent("text " + id);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        return message;
+    }
+
+    private Message received(long id) {
+        Message message = message(id, user2Id, user1Id);
+        message.setTimestamp(RECEIVED_AT);
+        return message;
+    }
+
+    private List<Long> ids(ConversationPageDto page) {
+        return page.getMessages().stream().map(MessageDto::getId).toList();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void getConversation_ReturnsOnlyLatestPageOldestFirst() {
+        User user1 = new User();
+        user1.setId(user1Id);
+        User user2 = new User();
+        user2.setId(user2Id);
+        when(userRepository.findById(user1Id)).thenReturn(Optional.of(user1));
+        when(userRepository.findById(user2Id)).thenReturn(Optional.of(user2));
+        when(messageRepository.findConversationLatest("1:2", 200))
+                .thenReturn(List.of(message(9, 1L, 2L), message(7, 2L, 1L)));
+
+        List<MessageDto> conversation = messageService.getConversation(user1Id, user2Id);
+
+        assertEquals(List.of(7L, 9L), conversation.stream().map(MessageDto::getId).toList());
+    }
+
+    @Test
+    void getConversationPage_Latest_ReturnsNewestFirstWithMore() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationLatest("1:2", 3))
+                .thenReturn(List.of(message(9, 1L, 2L), message(7, 2L, 1L), message(4, 1L, 2L)));
+
+        ConversationPageDto page = messageService.getConversationPage(user1Id, user2Id,
+                null, null, 2);
+
+        assertEquals(List.of(9L, 7L), ids(page));
+        assertEquals(9L, page.getNewestId());
+        assertEquals(7L, page.getOldestId());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void getConversationPage_After_ReturnsNewestFirst() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationMessageTime("1:2", 5L))
+                .thenReturn(Optional.of(RECEIVED_AT));
+        when(messageRepository.findConversationAfter("1:2", RECEIVED_AT, 5L, 11))
+                .thenReturn(List.of(message(7, 2L, 1L), message(9, 1L, 2L)));
+
+        ConversationPageDto page = messageService.getConversationPage(user1Id, user2Id,
+                null, 5L, 10);
+
+        assertEquals(List.of(9L, 7L), ids(page));
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void getConversationPage_Empty_HasNoCursors() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationMessageTime("1:2", 3L))
+                .thenReturn(Optional.of(RECEIVED_AT));
+        when(messageRepository.findConversationBefore("1:2", RECEIVED_AT, 3L, 11))
+                .thenReturn(List.of());
+
+        ConversationPageDto page = messageService.getConversationPage(user1Id, user2Id,
+                3L, null, 10);
+
+        assertTrue(page.getMessages().isEmpty());
+        assertNull(page.getNewestId());
+        assertNull(page.getOldestId());
+    }
+
+    @Test
+    void getConversationPage_CursorFromOtherConversation_ThrowsNotFound() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationMessageTime("1:2", 3L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                messageService.getConversationPage(user1Id, user2Id, 3L, null, 10));
+        verify(messageRepository, never()).findConversationBefore(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void conversationIdOf_IsSameForBothDirections() {
+        assertEquals("2:10", Message.conversationIdOf(10, 2));
+        assertEquals(Message.conversationIdOf(10, 2), Message.conversationIdOf(2, 10));
+    }
+
+    @Test
+    void getConversationPage_BothCursors_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                messageService.getConversationPage(user1Id, user2Id, 5L, 3L, 10));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getConversationPage_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                messageService.getConversationPage(user1Id, user2Id, null, null, 0));
+    }
+
+    @Test
+    void getConversationPage_UserNotFound_ThrowsException() {
+        when(userRepository.existsById(user1Id)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                messageService.getConversationPage(user1Id, user2Id, null, null, 10));
+        verify(messageRepository, never()).findConversationLatest(anyString(), anyInt());
+    }
+
+    @Test
+    void getConversationPage_DerivesReadFlagFromWatermark() {
+        ConversationRead read = new ConversationRead();
+        read.setUserId(2L);
+        read.setConversationId("1:2");
+        read.setLastReadMessageId(7L);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationLatest("1:2", 11))
+                .thenReturn(List.of(message(9, 1L, 2L), message(7, 1L, 2L), message(4, 2L, 1L)));
+        when(conversationReadRepository.findByConversationId("1:2")).thenReturn(List.of(read));
+
+        ConversationPageDto page = messageService.getConversationPage(user1Id, user2Id,
+                null, null, 10);
+
+        assertEquals(List.of(false, true, false),
+                page.getMessages().stream().map(MessageDto::isRead).toList());
+    }
+
+    @Test
+    void markMessagesAsRead_AdvancesWatermarkAndReturnsNewlyRead() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findLastReceived("1:2", user1Id, 0L, NO_WATERMARK_AT))
+                .thenReturn(Optional.of(received(20)));
+        when(conversationReadRepository.lockWatermark(user1Id, "1:2")).thenReturn(12L);
+        when(messageRepository.countReceivedBetween("1:2", user1Id, 12L, 20L, NO_WATERMARK_AT))
+                .thenReturn(3L);
+
+        int newlyRead = messageService.markMessagesAsRead(user1Id, user2Id);
+
+        assertEquals(3, newlyRead);
+        verify(conversationReadRepository).ensureExists(user1Id, "1:2");
+        verify(conversationReadRepository).advance(user1Id, "1:2", 20L, RECEIVED_AT);
+        verify(conversationSummaryRepository).decrementUnread(user1Id, "1:2", 3);
+        verify(messageRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void markMessagesAsRead_AlreadyRead_DoesNotWrite() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findLastReceived("1:2", user1Id, 0L, NO_WATERMARK_AT))
+                .thenReturn(Optional.of(received(20)));
+        when(conversationReadRepository.lockWatermark(user1Id, "1:2")).thenReturn(20L);
+
+        assertEquals(0, messageService.markMessagesAsRead(user1Id, user2Id));
+        verify(conversationReadRepository, never()).advance(any(), any(), any(), any());
+    }
+
+    @Test
+    void markMessagesAsRead_NoReceivedMessages_ReturnsZero() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findLastReceived("1:2", user1Id, 0L, NO_WATERMARK_AT))
+                .thenReturn(Optional.empty());
+
+        assertEquals(0, messageService.markMessagesAsRead(user1Id, user2Id));
+        verify(conversationReadRepository, never()).ensureExists(any(), any());
+    }
+
+    @Test
+    void markMessagesAsRead_SearchesOnlyAfterKnownWatermark() {
+        ConversationRead read = new ConversationRead();
+        read.setUserId(user1Id);
+        read.setConversationId("1:2");
+        read.setLastReadMessageId(20L);
+        read.setLastReadAt(RECEIVED_AT);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(conversationReadRepository.findById(new ConversationRead.Key(user1Id, "1:2")))
+                .thenReturn(Optional.of(read));
+        when(messageRepository.findLastReceived("1:2", user1Id, 20L, RECEIVED_AT))
+                .thenReturn(Optional.empty());
+
+        assertEquals(0, messageService.markMessagesAsRead(user1Id, user2Id));
+        verify(conversationReadRepository, never()).lockWatermark(any(), any());
+    }
+
+    @Test
+    void markMessagesAsRead_InterlocutorNotFound_ThrowsException() {
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(userRepository.existsById(user2Id)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                messageService.markMessagesAsRead(user1Id, user2Id));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getUnreadMessagesCount_LoadsOnceThenServesFromMemory() {
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(messageRepository.countUnread(user1Id)).thenReturn(5L);
+
+        assertEquals(5L, messageService.getUnreadMessagesCount(user1Id));
+        assertEquals(5L, messageService.getUnreadMessagesCount(user1Id));
+
+        verify(messageRepository, times(1)).countUnread(user1Id);
+    }
+
+    @Test
+    void markMessagesAsRead_DecrementsLoadedCounter() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.countUnread(user1Id)).thenReturn(5L);
+        when(messageRepository.findLastReceived("1:2", user1Id, 0L, NO_WATERMARK_AT))
+                .thenReturn(Optional.of(received(20)));
+        when(conversationReadRepository.lockWatermark(user1Id, "1:2")).thenReturn(12L);
+        when(messageRepository.countReceivedBetween("1:2", user1Id, 12L, 20L, NO_WATERMARK_AT))
+                .thenReturn(3L);
+        messageService.getUnreadMessagesCount(user1Id);
+
+        messageService.markMessagesAsRead(user1Id, user2Id);
+
+        assertEquals(2L, messageService.getUnreadMessagesCount(user1Id));
+    }
+
+    @Test
+    void reconcileUnreadCounters_OverwritesDrift() {
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(messageRepository.countUnread(user1Id)).thenReturn(5L);
+        messageService.getUnreadMessagesCount(user1Id);
+        when(conversationSummaryRepository.sumUnreadByUsers(List.of(user1Id)))
+                .thenReturn(List.<Object[]>of(new Object[]{user1Id, 7L}));
+
+        messageService.reconcileUnreadCounters();
+
+        assertEquals(7L, messageService.getUnreadMessagesCount(user1Id));
+    }
+
+    @Test
+    void sendMessage_PublishesToBothParticipants() {
+        User sender = new User();
+        sender.setId(user1Id);
+        User receiver = new User();
+        receiver.setId(user2Id);
+        when(userRepository.findById(user1Id)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(user2Id)).thenReturn(Optional.of(receiver));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message saved = invocation.getArgument(0);
+            saved.setId(42L);
+            return saved;
+        });
+
+        MessageDto result = messageService.sendMessage(user1Id, user2Id, "hello");
+
+        assertEquals(42L, result.getId());
+        verify(conversationSummaryRepository).recordMessages(List.of(result));
+        verify(messageRepository).indexForSearch(List.of(result));
+        verify(messageHub).publish(user2Id, result);
+        verify(messageHub).publish(user1Id, result);
+    }
+
+    @Test
+    void sendMessage_IdIssuedAfterSlack_RollsBack() {
+        User sender = new User();
+        sender.setId(user1Id);
+        User receiver = new User();
+        receiver.setId(user2Id);
+        when(userRepository.findById(user1Id)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(user2Id)).thenReturn(Optional.of(receiver));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message saved = invocation.getArgument(0);
+            saved.setId(42L);
+            saved.setTimestamp(LocalDateTime.now().minusMinutes(2));
+            return saved;
+        });
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> messageService.sendMessage(user1Id, user2Id, "hello"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        verify(conversationSummaryRepository, never()).recordMessages(any());
+        verifyNoInteractions(messageHub);
+    }
+
+    @Test
+    void sendMessage_WriteBehind_QueuesWithoutInsertAndPublishesOnStore() {
+        MessageDto queued = MessageDto.builder().id(77L).senderId(user1Id).receiverId(user2Id)
+                .content("hello").build();
+        when(messageIngestionService.isEnabled()).thenReturn(true);
+        when(userRepository.findExistingIds(List.of(user1Id, user2Id)))
+                .thenReturn(List.of(user1Id, user2Id));
+        when(messageIngestionService.submit(eq(user1Id), eq(user2Id), eq("hello"), any()))
+                .thenReturn(queued);
+
+        MessageDto result = messageService.sendMessage(user1Id, user2Id, "hello");
+
+        assertSame(queued, result);
+        verify(messageRepository, never()).save(any());
+        verify(userRepository, never()).findById(anyLong());
+        verifyNoInteractions(messageHub);
+
+        ArgumentCaptor<Consumer<MessageDto>> onStored = ArgumentCaptor.captor();
+        verify(messageIngestionService).submit(eq(user1Id), eq(user2Id), eq("hello"),
+                onStored.capture());
+        onStored.getValue().accept(queued);
+        verify(messageHub).publish(user2Id, queued);
+        verify(messageHub).publish(user1Id, queued);
+    }
+
+    @Test
+    void sendMessage_WriteBehind_UnknownUser_ThrowsNotFound() {
+        when(messageIngestionService.isEnabled()).thenReturn(true);
+        when(userRepository.findExistingIds(List.of(user1Id, user2Id)))
+                .thenReturn(List.of(user1Id));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> messageService.sendMessage(user1Id, user2Id, "hello"));
+        verify(messageIngestionService, never()).submit(any(), any(), any(), any());
+    }
+
+    private ConversationSummary summary(long interlocutorId, long lastMessageId) {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setUserId(user1Id);
+        summary.setConversationId(Message.conversationIdOf(user1Id, interlocutorId));
+        summary.setInterlocutorId(interlocutorId);
+        summary.setLastMessageId(lastMessageId);
+        summary.setLastSenderId(interlocutorId);
+        summary.setLastMessagePreview("text " + lastMessageId);
+        summary.setUnreadCount((int) interlocutorId);
+        return summary;
+    }
+
+    @Test
+    void getInbox_ReturnsPageWithCursor() {
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(conversationSummaryRepository.findInbox(user1Id, 3))
+                .thenReturn(List.of(summary(2, 30), summary(3, 20), summary(4, 10)));
+
+        InboxPageDto page = messageService.getInbox(user1Id, null, 2);
+
+        assertEquals(List.of(2L, 3L),
+                page.getItems().stream().map(InboxEntryDto::getInterlocutorId).toList());
+        assertEquals(3, page.getItems().get(1).getUnreadCount());
+        assertEquals("text 20", page.getItems().get(1).getLastMessagePreview());
+        assertEquals(20L, page.getNextCursor());
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getInbox_LastPage_HasNoCursor() {
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(conversationSummaryRepository.findInboxBefore(user1Id, 20L, 3))
+                .thenReturn(List.of(summary(4, 10)));
+
+        InboxPageDto page = messageService.getInbox(user1Id, 20L, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getInbox_InvalidLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.getInbox(user1Id, null, 0));
+        verifyNoInteractions(conversationSummaryRepository);
+    }
+
+    @Test
+    void searchMessages_ReturnsRankedPageWithReadFlags() {
+        Message first = message(30, 2L, 1L);
+        first.setConversationId("1:2");
+        Message second = message(12, 3L, 1L);
+        second.setConversationId("1:3");
+        Message third = message(5, 1L, 2L);
+        third.setConversationId("1:2");
+        ConversationRead read = new ConversationRead();
+        read.setUserId(1L);
+        read.setConversationId("1:3");
+        read.setLastReadMessageId(12L);
+        when(userRepository.existsById(user1Id)).thenReturn(true);
+        when(messageRepository.searchUserMessages(user1Id, "встреча", 0, 3))
+                .thenReturn(List.of(first, second, third));
+        when(conversationReadRepository.findByConversationIdIn(Set.of("1:2", "1:3")))
+                .thenReturn(List.of(read));
+
+        MessageSearchPageDto page = messageService.searchMessages(user1Id, " встреча ", 0, 2);
+
+        assertTrue(page.isHasMore());
+        assertEquals(List.of(30L, 12L),
+                page.getMessages().stream().map(MessageDto::getId).toList());
+        assertEquals(List.of(false, true),
+                page.getMessages().stream().map(MessageDto::isRead).toList());
+    }
+
+    @Test
+    void searchMessages_BlankQuery_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.searchMessages(user1Id, "  ", 0, 20));
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void searchMessages_OffsetTooLarge_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> messageService.searchMessages(user1Id, "text", 5000, 20));
+    }
+
+    @Test
+    void getConversationPage_CompressedMessage_ReturnsPreview() {
+        Message large = message(9, 2L, 1L);
+        large.setContent("длинный текст ".repeat(1000));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findConversationLatest("1:2", 2)).thenReturn(List.of(large));
+
+        MessageDto dto = messageService.getConversationPage(user1Id, user2Id, null, null, 1)
+                .getMessages().get(0);
+
+        assertTrue(dto.isTruncated());
+        assertEquals(large.getPreview(), dto.getContent());
+        assertEquals(200, dto.getContent().length());
+    }
+
+    @Test
+    void getMessage_ReturnsFullTextToParticipant() {
+        String text = "длинный текст ".repeat(1000);
+        Message large = message(9, 2L, 1L);
+        large.setContent(text);
+        large.setConversationId("1:2");
+        when(messageRepository.findUserMessage(user1Id, 9L)).thenReturn(Optional.of(large));
+
+        MessageDto dto = messageService.getMessage(user1Id, 9L);
+
+        assertFalse(dto.isTruncated());
+        assertEquals(text, dto.getContent());
+    }
+
+    @Test
+    void getMessage_OtherUsersMessage_ThrowsNotFound() {
+        when(messageRepository.findUserMessage(user1Id, 9L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> messageService.getMessage(user1Id, 9L));
+    }
+
+    @Test
+    void getMessagesSince_MarksReadByReceiverWatermark() {
+        Message toUser1 = message(11, 2L, 1L);
+        toUser1.setConversationId("1:2");
+        Message toUser3 = message(12, 1L, 3L);
+        toUser3.setConversationId("1:3");
+        ConversationRead read = new ConversationRead();
+        read.setUserId(1L);
+        read.setConversationId("1:2");
+        read.setLastReadMessageId(11L);
+        when(messageRepository.findUserMessagesSince(user1Id, 10L, 100))
+                .thenReturn(List.of(toUser1, toUser3));
+        when(conversationReadRepository.findByConversationIdIn(Set.of("1:2", "1:3")))
+                .thenReturn(List.of(read));
+
+        List<MessageDto> result = messageService.getMessagesSince(user1Id, 10L, 100);
+
+        assertEquals(List.of(true, false), result.stream().map(MessageDto::isRead).toList());
+    }
+
+    @Test
+    void getMessagesSince_NegativeSince_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () ->
+                messageService.getMessagesSince(user1Id, -1L, 100));
+        verifyNoInteractions(messageRepository);
+    }
+}
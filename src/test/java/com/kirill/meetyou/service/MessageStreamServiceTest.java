@@ -0,0 +1,80 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.dto.MessageDto;
+import com.kirill.meetyou.exception.ResourceNotFoundException;
+import com.kirill.meetyou.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageStreamServiceTest {
+
+    private final MessageHub messageHub = new MessageHub();
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private MessageStreamService service(Executor executor, int bufferSize, int maxPerUser) {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        return new MessageStreamService(messageHub, userRepository, executor, 60_000,
+                bufferSize, maxPerUser);
+    }
+
+    @Test
+    void open_SubscribesAndDeliversMessages() {
+        MessageStreamService streams = service(Runnable::run, 4, 5);
+
+        streams.open(1L);
+        messageHub.publish(1L, MessageDto.builder().id(10L).build());
+
+        assertEquals(1, messageHub.countListeners(1L));
+        assertEquals(1, streams.countSubscribers());
+    }
+
+    @Test
+    void slowConsumer_IsDroppedWhenBufferOverflows() {
+        // Задачи отправки не выполняются: клиент ничего не вычитывает
+        List<Runnable> stalled = new ArrayList<>();
+        MessageStreamService streams = service(stalled::add, 2, 5);
+        streams.open(1L);
+
+        messageHub.publish(1L, MessageDto.builder().id(10L).build());
+        messageHub.publish(1L, MessageDto.builder().id(11L).build());
+
+        assertEquals(0, messageHub.countListeners(1L));
+        assertEquals(0, streams.countSubscribers());
+        assertEquals(1, stalled.size());
+    }
+
+    @Test
+    void heartbeat_OverflowingStalledStream_DropsIt() {
+        MessageStreamService streams = service(task -> { }, 1, 5);
+        streams.open(1L);
+
+        streams.sendHeartbeats();
+
+        assertEquals(0, streams.countSubscribers());
+    }
+
+    @Test
+    void open_TooManyStreams_ThrowsException() {
+        MessageStreamService streams = service(Runnable::run, 4, 1);
+        streams.open(1L);
+
+        assertThrows(ResponseStatusException.class, () -> streams.open(1L));
+        assertEquals(1, streams.countSubscribers());
+        assertEquals(1, messageHub.countListeners(1L));
+    }
+
+    @Test
+    void open_UserNotFound_ThrowsException() {
+        MessageStreamService streams = service(Runnable::run, 4, 1);
+
+        assertThrows(ResourceNotFoundException.class, () -> streams.open(2L));
+    }
+}
@@ -7,16 +7,25 @@ import com.kirill.meetyou.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +42,9 @@ class PhotoServiceTest {
     @InjectMocks
     private PhotoService photoService;
 
+    @TempDir
+    Path uploadDir;
+
     private User testUser;
     private Photo testPhoto;
     private Photo mainPhoto;
@@ -58,65 +70,20 @@ class PhotoServiceTest {
         mainPhoto.setIsMainString("true");
     }
 
-    @Test
-    void addPhoto_ShouldSuccessfullyAddPhoto() {
-        // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(photoRepository.save(testPhoto)).thenReturn(testPhoto);
-
-        // Act
-        Photo result = photoService.addPhoto(1L, testPhoto);
-
-        // Assert
-        assertNotNull(result);
-        assertEquals(testPhoto, result);
-        verify(photoRepository).save(testPhoto);
-    }
-
-    @Test
-    void addPhoto_ShouldClearMainPhotosWhenAddingNewMainPhoto() {
-        // Arrange
-        testPhoto.setIsMainString("true");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(photoRepository.save(testPhoto)).thenReturn(testPhoto);
-
-        // Act
-        Photo result = photoService.addPhoto(1L, testPhoto);
-
-        // Assert
-        assertNotNull(result);
-        verify(photoRepository).clearMainPhotos(1L);
-    }
-
     @Test
     void addPhoto_ShouldThrowExceptionForInvalidUserId() {
-        // Act & Assert - separate into two tests
-        assertThrows(ResponseStatusException.class, () -> {
-            Photo photo = testPhoto;
-            photoService.addPhoto(null, photo);
-        });
+        MockMultipartFile file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] {1});
 
-        assertThrows(ResponseStatusException.class, () -> {
-            Photo photo = testPhoto;
-            photoService.addPhoto(0L, photo);
-        });
+        assertThrows(ResponseStatusException.class, () -> photoService.addPhoto(null, file, "false"));
+        assertThrows(ResponseStatusException.class, () -> photoService.addPhoto(0L, file, "false"));
     }
 
     @Test
     void addPhoto_ShouldThrowExceptionForInvalidPhoto() {
-        // Act & Assert - separate null test
-        assertThrows(ResponseStatusException.class, () -> {
-            Photo photo = null;
-            photoService.addPhoto(1L, photo);
-        });
-    }
+        MockMultipartFile text = new MockMultipartFile("file", "a.txt", "text/plain", new byte[] {1});
 
-    @Test
-    void addPhoto_ShouldThrowExceptionForEmptyPhotoUrl() {
-        // Act & Assert - separate empty URL test
-        Photo invalidPhoto = new Photo();
-        invalidPhoto.setPhotoUrl("");
-        assertThrows(ResponseStatusException.class, () -> photoService.addPhoto(1L, invalidPhoto));
+        assertThrows(ResponseStatusException.class, () -> photoService.addPhoto(1L, null, "false"));
+        assertThrows(ResponseStatusException.class, () -> photoService.addPhoto(1L, text, "false"));
     }
 
     @Test
@@ -227,30 +194,15 @@ class PhotoServiceTest {
     @Test
     void addMultiplePhotos_ShouldHandleEmptyList() {
         // Act
-        List<Photo> result = photoService.addMultiplePhotos(1L, Collections.emptyList());
+        List<Photo> result = photoService.addMultiplePhotos(1L, Collections.emptyList(), null);
 
         // Assert
         assertTrue(result.isEmpty());
     }
 
     @Test
-    void addMultiplePhotos_ShouldThrowExceptionForNullList() {
-        // Act & Assert
-        assertThrows(ResponseStatusException.class, () -> photoService.addMultiplePhotos(1L, null));
-    }
-
-    @Test
-    void addMultiplePhotos_ShouldClearMainPhotosWhenAddingNewMain() {
-        // Arrange
-        mainPhoto.setId(null);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(photoRepository.saveAll(any())).thenReturn(List.of(mainPhoto));
-
-        // Act
-        photoService.addMultiplePhotos(1L, List.of(mainPhoto));
-
-        // Assert
-        verify(photoRepository).clearMainPhotos(1L);
+    void addMultiplePhotos_ShouldReturnEmptyListForNullList() {
+        assertTrue(photoService.addMultiplePhotos(1L, null, null).isEmpty());
     }
 
     @Test
@@ -302,34 +254,6 @@ class PhotoServiceTest {
         assertEquals(newDate, result.getUploadDate());
     }
 
-    @Test
-    void addPhoto_ShouldSetMainPhotoCorrectly() {
-        // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(photoRepository.save(mainPhoto)).thenReturn(mainPhoto);
-
-        // Act
-        Photo result = photoService.addPhoto(1L, mainPhoto);
-
-        // Assert
-        assertEquals("true", result.getIsMainString());
-        verify(photoRepository).clearMainPhotos(1L);
-    }
-
-    @Test
-    void addPhoto_ShouldNotClearMainPhotosForNonMainPhoto() {
-        // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(photoRepository.save(testPhoto)).thenReturn(testPhoto);
-
-        // Act
-        Photo result = photoService.addPhoto(1L, testPhoto);
-
-        // Assert
-        assertEquals("false", result.getIsMainString());
-        verify(photoRepository, never()).clearMainPhotos(any());
-    }
-
     @Test
     void updatePhoto_ShouldUpdateOnlyIsMainField() {
         // Arrange
@@ -357,4 +281,97 @@ class PhotoServiceTest {
         assertThrows(ResponseStatusException.class,
                 () -> photoService.getPhotoById(1L, 0L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void addMultiplePhotos_KeepsOrderAndMarksFirstAsMainInOneSaveAll() {
+        // Записи завершаются в обратном порядке, а фотографии должны идти в порядке файлов
+        PhotoService service = uploadService(reversingExecutor(3));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(photoRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Photo> result = service.addMultiplePhotos(1L,
+                List.of(image("a.jpg"), image("b.jpg"), image("c.jpg")), "true");
+
+        assertEquals(3, result.size());
+        assertTrue(result.get(0).getPhotoUrl().endsWith("_a.jpg"));
+        assertTrue(result.get(1).getPhotoUrl().endsWith("_b.jpg"));
+        assertTrue(result.get(2).getPhotoUrl().endsWith("_c.jpg"));
+        assertEquals(List.of("true", "false", "false"),
+                result.stream().map(Photo::getIsMainString).toList());
+        verify(photoRepository).clearMainPhotos(1L);
+        verify(photoRepository, times(1)).saveAll(anyList());
+        verify(photoRepository, never()).save(any());
+    }
+
+    @Test
+    void addMultiplePhotos_PartialFailure_SavesRestAndReturns206() throws IOException {
+        PhotoService service = uploadService(Runnable::run);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        MultipartFile broken = mock(MultipartFile.class);
+        when(broken.getContentType()).thenReturn("image/png");
+        when(broken.getOriginalFilename()).thenReturn("broken.png");
+        when(broken.getInputStream()).thenThrow(new IllegalStateException("stream closed"));
+        MockMultipartFile text = new MockMultipartFile("file", "a.txt", "text/plain", new byte[] {1});
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.addMultiplePhotos(1L,
+                        List.of(broken, image("b.jpg"), text, image("d.jpg")), "true"));
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, ex.getStatusCode());
+        ArgumentCaptor<List<Photo>> saved = ArgumentCaptor.captor();
+        verify(photoRepository, times(1)).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertTrue(saved.getValue().get(0).getPhotoUrl().endsWith("_b.jpg"));
+        assertTrue(saved.getValue().get(1).getPhotoUrl().endsWith("_d.jpg"));
+        assertEquals(List.of("true", "false"),
+                saved.getValue().stream().map(Photo::getIsMainString).toList());
+    }
+
+    @Test
+    void addMultiplePhotos_AllFilesFail_Returns400WithoutSaving() {
+        PhotoService service = uploadService(Runnable::run);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        MockMultipartFile text = new MockMultipartFile("file", "a.txt", "text/plain", new byte[] {1});
+        MockMultipartFile empty = new MockMultipartFile("file", "b.jpg", "image/jpeg", new byte[0]);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.addMultiplePhotos(1L, List.of(text, empty), "false"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(photoRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void addMultiplePhotos_RejectedByExecutor_FailsFileInsteadOfHanging() {
+        PhotoService service = uploadService(task -> {
+            throw new RejectedExecutionException("pool shut down");
+        });
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.addMultiplePhotos(1L, List.of(image("a.jpg")), "false"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        verify(photoRepository, never()).saveAll(anyList());
+    }
+
+    private PhotoService uploadService(Executor executor) {
+        return new PhotoService(photoRepository, userRepository, executor, uploadDir + "/");
+    }
+
+    private MockMultipartFile image(String name) {
+        return new MockMultipartFile("file", name, "image/jpeg", name.getBytes());
+    }
+
+    // Копит задачи и выполняет их в обратном порядке, когда пришла последняя
+    private Executor reversingExecutor(int tasks) {
+        List<Runnable> pending = new ArrayList<>();
+        return task -> {
+            pending.add(task);
+            if (pending.size() == tasks) {
+                Collections.reverse(pending);
+                pending.forEach(Runnable::run);
+            }
+        };
+    }
+}
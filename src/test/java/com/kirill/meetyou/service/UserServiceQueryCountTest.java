@@ -0,0 +1,129 @@
+package com.kirill.meetyou.service;
+
+import com.kirill.meetyou.cache.UserCache;
+import com.kirill.meetyou.dto.UserDto;
+import com.kirill.meetyou.model.Interest;
+import com.kirill.meetyou.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.sql.init.mode=never"
+})
+@Import({UserService.class, UserCache.class})
+class UserServiceQueryCountTest {
+
+    private static final int USERS_COUNT = 20;
+
+    @Autowired
+    private UserService userService;
+
+    @MockitoBean
+    private FriendService friendService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Interest sports = new Interest();
+        sports.setInterestType("Sports");
+        Interest music = new Interest();
+        music.setInterestType("Music");
+        entityManager.persist(sports);
+        entityManager.persist(music);
+
+        for (int i = 0; i < USERS_COUNT; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setBirth(LocalDate.of(1990, 1, 1));
+            user.setAge(35);
+            user.getInterests().add(sports);
+            if (i % 2 == 0) {
+                user.getInterests().add(music);
+            }
+            entityManager.persist(user);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findByInterest_UsesTwoStatementsRegardlessOfResultSize() {
+        List<UserDto> result = userService.findByInterest("Sports");
+
+        assertEquals(USERS_COUNT, result.size());
+        assertTrue(result.stream().allMatch(dto -> dto.getInterests().contains("Sports")));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByAllInterests_UsesTwoStatements() {
+        List<UserDto> result = userService.findByAllInterests(Set.of("Sports", "Music"));
+
+        assertEquals(USERS_COUNT / 2, result.size());
+        assertTrue(result.stream().allMatch(dto ->
+                dto.getInterests().equals(Set.of("Sports", "Music"))));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByAnyInterest_UsesTwoStatements() {
+        List<UserDto> result = userService.findByAnyInterest(Set.of("Music"));
+
+        assertEquals(USERS_COUNT / 2, result.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByInterest_NoMatches_UsesSingleStatement() {
+        List<UserDto> result = userService.findByInterest("Chess");
+
+        assertTrue(result.isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void countByInterest_UsesSingleStatement() {
+        assertEquals(USERS_COUNT, userService.countByInterest("Sports"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void countByAllInterests_UsesSingleStatement() {
+        assertEquals(USERS_COUNT / 2, userService.countByAllInterests(Set.of("Sports", "Music")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void countByAnyInterest_UsesSingleStatement() {
+        assertEquals(USERS_COUNT, userService.countByAnyInterest(Set.of("Sports", "Music")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
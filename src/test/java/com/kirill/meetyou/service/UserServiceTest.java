@@ -2,6 +2,10 @@ package com.kirill.meetyou.service;
 
 import com.kirill.meetyou.cache.UserCache;
 import com.kirill.meetyou.dto.BulkResponse;
+import com.kirill.meetyou.dto.UserCreateDto;
+import com.kirill.meetyou.dto.UserDto;
+import com.kirill.meetyou.dto.UserInterestDto;
+import com.kirill.meetyou.model.User;
 import com.kirill.meetyou.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +20,8 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +35,9 @@ class UserServiceTest {
     @Mock
     private UserCache cache;
 
+    @Mock
+    private FriendService friendService;
+
     @InjectMocks
     private UserService userService;
 
@@ -187,6 +196,7 @@ class UserServiceTest {
         // Assert
         verify(userRepository).existsById(1L);
         verify(cache).remove(1L);
+        verify(friendService).removeAllFriendships(1L);
         verify(userRepository).deleteById(1L);
     }
 
@@ -516,4 +526,27 @@ class UserServiceTest {
         assertNotNull(exception.getReason());
         assertTrue(exception.getReason().contains("Internal server error"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByAnyInterest_LoadsInterestsInBatchesOfThousandIds() {
+        // Arrange
+        Set<String> interests = Set.of("music");
+        List<UserDto> users = LongStream.rangeClosed(1, 1001)
+                .mapToObj(id -> new UserDto(id, "user" + id, id + "@example.com", null, null))
+                .toList();
+        when(userRepository.findUserDtosByAnyInterestTypes(interests)).thenReturn(users);
+        when(userRepository.findInterestTypesByUserIds(anyCollection()))
+                .thenReturn(List.of(new UserInterestDto(1L, "music")))
+                .thenReturn(List.of(new UserInterestDto(1001L, "music")));
+
+        // Act
+        List<UserDto> result = userService.findByAnyInterest(interests);
+
+        // Assert
+        verify(userRepository).findInterestTypesByUserIds(argThat(ids -> ids.size() == 1000));
+        verify(userRepository).findInterestTypesByUserIds(argThat(ids -> ids.size() == 1));
+        assertEquals(Set.of("music"), result.get(0).getInterests());
+        assertEquals(Set.of(), result.get(1).getInterests());
+        assertEquals(Set.of("music"), result.get(1000).getInterests());
+    }
+}
@@ -0,0 +1,96 @@
+package com.kirill.meetyou.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileStreamUtilsTest {
+
+    private static final int UPLOAD_SIZE = 10 * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void copyAtomically_WritesWholeStreamAndLeavesNoTempFile() throws IOException {
+        byte[] content = new byte[200_000];
+        new Random(1).nextBytes(content);
+        Path target = dir.resolve("photo.jpg");
+
+        long written = FileStreamUtils.copyAtomically(new ByteArrayInputStream(content), target);
+
+        assertEquals(content.length, written);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void copyAtomically_TargetIsReadableByOthers() throws IOException {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path target = dir.resolve("photo.jpg");
+
+        FileStreamUtils.copyAtomically(new ByteArrayInputStream(new byte[10]), target);
+
+        assertEquals("rw-r--r--",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(target)));
+    }
+
+    @Test
+    void copyAtomically_FailedRead_RemovesTempFileAndKeepsTargetAbsent() throws IOException {
+        Path target = dir.resolve("photo.jpg");
+        InputStream broken = new InputStream() {
+            private int served;
+
+            @Override
+            public int read() throws IOException {
+                if (served++ > 1000) {
+                    throw new IOException("connection reset");
+                }
+                return 7;
+            }
+        };
+
+        assertThrows(IOException.class, () -> FileStreamUtils.copyAtomically(broken, target));
+
+        assertFalse(Files.exists(target));
+        assertEquals(0, countFiles());
+    }
+
+    // Замер выделенной памяти на одну загрузку 10 МБ: при Files.write(file.getBytes())
+    // это не меньше размера файла, при потоковой записи — только служебные объекты
+    @Test
+    void copyAtomically_AllocatesFarLessThanUploadSize() throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        byte[] content = new byte[UPLOAD_SIZE];
+        for (int i = 0; i < 3; i++) {
+            FileStreamUtils.copyAtomically(new ByteArrayInputStream(content),
+                    dir.resolve("warmup-" + i));
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        FileStreamUtils.copyAtomically(new ByteArrayInputStream(content), dir.resolve("photo.jpg"));
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < UPLOAD_SIZE / 10, "allocated " + allocated);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.kirill.meetyou.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void tryAcquire_AllowsBurstThenReportsWait() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 60, 10, clock::get);
+
+        assertEquals(0, limiter.tryAcquire(1));
+        assertEquals(0, limiter.tryAcquire(1));
+        assertEquals(0, limiter.tryAcquire(1));
+        long wait = limiter.tryAcquire(1);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+        assertEquals(0, limiter.tryAcquire(2));
+    }
+
+    @Test
+    void tryAcquire_RefillsOneTokenPerInterval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 60, 10, clock::get);
+        assertEquals(0, limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(1) > 0);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(1) > 0);
+    }
+
+    @Test
+    void evictIdle_RemovesOnlyFullBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 60, 10, clock::get);
+        limiter.tryAcquire(1);
+        limiter.tryAcquire(2);
+        limiter.tryAcquire(2);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        assertEquals(1, limiter.evictIdle());
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_FullMap_EvictsIdleOrUsesSharedOverflowBucket() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 60, 2, clock::get);
+        limiter.tryAcquire(1);
+        limiter.tryAcquire(2);
+
+        // Новые ключи при заполненной таблице делят одну корзину и тоже ограничиваются
+        assertEquals(0, limiter.tryAcquire(3));
+        assertTrue(limiter.tryAcquire(4) > 0);
+        assertEquals(2, limiter.size());
+        assertEquals(2, limiter.overflowed());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, limiter.tryAcquire(3));
+        assertTrue(limiter.tryAcquire(3) > 0);
+        assertEquals(2, limiter.overflowed());
+    }
+
+    @Test
+    void tryAcquire_FullMap_EvictsAtMostOncePerSecond() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 120, 2, clock::get);
+        limiter.tryAcquire(1);
+        limiter.tryAcquire(2);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limiter.tryAcquire(3);
+        limiter.tryAcquire(1);
+
+        // Корзины 3 и 1 уже полны, но очистка была меньше секунды назад: 4 идёт в общую корзину
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(0, limiter.tryAcquire(4));
+        assertEquals(2, limiter.size());
+        assertEquals(1, limiter.overflowed());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(0, limiter.tryAcquire(4));
+        assertTrue(limiter.tryAcquire(4) > 0);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_ConcurrentCallersNeverExceedCapacity() throws InterruptedException {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, 1, 10, clock::get);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (limiter.tryAcquire(7) == 0) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, allowed.get());
+    }
+}
@@ -0,0 +1,148 @@
+-- Сравнение планов и времени запросов переписки: OR по sender/receiver против conversation_id.
+-- Запуск на отдельной БД: psql -d meetyou_bench -f conversation_queries.sql > result.txt
+-- Все объекты создаются в схеме bench_conversation и удаляются в конце.
+-- Кроме планов, в конце печатается сводка: среднее и минимальное время каждого запроса
+-- по 20 прогонам до и после — её и переносить в описание изменений.
+
+\timing on
+SET client_min_messages = warning;
+
+DROP SCHEMA IF EXISTS bench_conversation CASCADE;
+CREATE SCHEMA bench_conversation;
+SET search_path = bench_conversation;
+
+CREATE TABLE messages (
+    id              BIGSERIAL PRIMARY KEY,
+    content         TEXT        NOT NULL,
+    timestamp       TIMESTAMP   NOT NULL,
+    sender_id       BIGINT      NOT NULL,
+    receiver_id     BIGINT      NOT NULL,
+    is_read         BOOLEAN     NOT NULL DEFAULT FALSE,
+    conversation_id VARCHAR(41)
+);
+
+-- 2 млн сообщений между 10 000 пользователей плюс длинная переписка 1 <-> 2 на 200 000 сообщений
+INSERT INTO messages (content, timestamp, sender_id, receiver_id, is_read)
+SELECT 'message ' || g,
+       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second',
+       1 + (random() * 9999)::BIGINT,
+       1 + (random() * 9999)::BIGINT,
+       random() < 0.9
+FROM generate_series(1, 2000000) g;
+
+INSERT INTO messages (content, timestamp, sender_id, receiver_id, is_read)
+SELECT 'chat ' || g,
+       TIMESTAMP '2024-01-01' + g * INTERVAL '10 second',
+       CASE WHEN g % 2 = 0 THEN 1 ELSE 2 END,
+       CASE WHEN g % 2 = 0 THEN 2 ELSE 1 END,
+       TRUE
+FROM generate_series(1, 200000) g;
+
+UPDATE messages
+SET conversation_id = LEAST(sender_id, receiver_id) || ':' || GREATEST(sender_id, receiver_id);
+
+-- Сводка времени: каждый запрос выполняется runs раз на прогретом кэше
+CREATE TABLE results (
+    phase   TEXT,
+    query   TEXT,
+    runs    INTEGER,
+    avg_ms  NUMERIC(10, 3),
+    min_ms  NUMERIC(10, 3)
+);
+
+CREATE FUNCTION measure(p_phase TEXT, p_query TEXT, p_sql TEXT, p_runs INTEGER)
+RETURNS VOID AS $$
+DECLARE
+    started TIMESTAMPTZ;
+    elapsed NUMERIC;
+    total   NUMERIC := 0;
+    best    NUMERIC;
+BEGIN
+    EXECUTE p_sql;
+    FOR i IN 1..p_runs LOOP
+        started := clock_timestamp();
+        EXECUTE p_sql;
+        elapsed := EXTRACT(EPOCH FROM clock_timestamp() - started) * 1000;
+        total := total + elapsed;
+        best := LEAST(COALESCE(best, elapsed), elapsed);
+    END LOOP;
+    INSERT INTO results VALUES (p_phase, p_query, p_runs, total / p_runs, best);
+END;
+$$ LANGUAGE plpgsql;
+
+-- До: индексы по отправителю и получателю, запрос через OR
+CREATE INDEX ix_bench_sender ON messages (sender_id);
+CREATE INDEX ix_bench_receiver ON messages (receiver_id);
+ANALYZE messages;
+
+\echo '=== ДО: вся переписка, OR по направлениям ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE (sender_id = 1 AND receiver_id = 2) OR (sender_id = 2 AND receiver_id = 1)
+ORDER BY timestamp ASC;
+
+\echo '=== ДО: последняя страница (50), OR по направлениям ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE (sender_id = 1 AND receiver_id = 2) OR (sender_id = 2 AND receiver_id = 1)
+ORDER BY timestamp DESC, id DESC LIMIT 51;
+
+SELECT measure('до', 'вся переписка', 'SELECT * FROM messages'
+    || ' WHERE (sender_id = 1 AND receiver_id = 2) OR (sender_id = 2 AND receiver_id = 1)'
+    || ' ORDER BY timestamp ASC', 20);
+SELECT measure('до', 'последняя страница', 'SELECT * FROM messages'
+    || ' WHERE (sender_id = 1 AND receiver_id = 2) OR (sender_id = 2 AND receiver_id = 1)'
+    || ' ORDER BY timestamp DESC, id DESC LIMIT 51', 20);
+
+-- После: один индекс по ключу переписки и времени
+DROP INDEX ix_bench_sender;
+DROP INDEX ix_bench_receiver;
+ALTER TABLE messages ALTER COLUMN conversation_id SET NOT NULL;
+CREATE INDEX ix_bench_conversation_time ON messages (conversation_id, timestamp, id);
+ANALYZE messages;
+
+\echo '=== ПОСЛЕ: вся переписка по conversation_id ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE conversation_id = '1:2'
+ORDER BY timestamp ASC, id ASC;
+
+\echo '=== ПОСЛЕ: последняя страница (50) ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE conversation_id = '1:2'
+ORDER BY timestamp DESC, id DESC LIMIT 51;
+
+-- Курсор beforeId, как в MessageService: время курсора ищется внутри переписки,
+-- затем страница строится от явной пары (timestamp, id)
+SELECT c.id AS cursor_id, c.timestamp AS cursor_at
+FROM messages c
+WHERE c.id = (SELECT MIN(id) + 1000 FROM messages WHERE conversation_id = '1:2')
+  AND c.conversation_id = '1:2' \gset
+
+\echo '=== ПОСЛЕ: время курсора в переписке ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT timestamp FROM messages WHERE id = :cursor_id AND conversation_id = '1:2';
+
+\echo '=== ПОСЛЕ: страница глубоко в истории (курсор beforeId) ==='
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages m
+WHERE m.conversation_id = '1:2'
+  AND m.timestamp <= :'cursor_at'
+  AND (m.timestamp, m.id) < (CAST(:'cursor_at' AS TIMESTAMP), :cursor_id)
+ORDER BY m.timestamp DESC, m.id DESC LIMIT 51;
+
+SELECT measure('после', 'вся переписка', 'SELECT * FROM messages'
+    || ' WHERE conversation_id = ''1:2'' ORDER BY timestamp ASC, id ASC', 20);
+SELECT measure('после', 'последняя страница', 'SELECT * FROM messages'
+    || ' WHERE conversation_id = ''1:2'' ORDER BY timestamp DESC, id DESC LIMIT 51', 20);
+SELECT measure('после', 'страница по курсору', 'SELECT * FROM messages m'
+    || ' WHERE m.conversation_id = ''1:2'' AND m.timestamp <= ' || quote_literal(:'cursor_at')
+    || ' AND (m.timestamp, m.id) < (CAST(' || quote_literal(:'cursor_at') || ' AS TIMESTAMP), '
+    || :cursor_id || ') ORDER BY m.timestamp DESC, m.id DESC LIMIT 51', 20);
+
+\echo '=== Сводка времени, мс ==='
+SELECT query, phase, runs, avg_ms, min_ms FROM results ORDER BY query, phase DESC;
+
+RESET search_path;
+DROP SCHEMA bench_conversation CASCADE;